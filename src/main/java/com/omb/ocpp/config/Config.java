@@ -18,21 +18,39 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.omb.ocpp.gui.Application.OCPP_SERVER_HOME;
 
+/**
+ * Application configuration backed by ocpp-server.properties. Values are read from an immutable
+ * {@link ConfigSnapshot} rebuilt on every change, including edits of the file made while application runs.
+ */
 public class Config {
     private static final Logger LOGGER = LoggerFactory.getLogger(Application.class);
     private static final Path PROPERTIES_PATH = Paths.get(OCPP_SERVER_HOME, "ocpp-server.properties").normalize();
     private static final String DEFAULT_VALUE_MESSAGE = "Could not get value for key %s, default value will be " +
             "returned %s";
+    // editors write a file in several steps, changes are collected for this time before the file is reloaded
+    private static final long RELOAD_DELAY_MILLIS = 200;
 
+    private final List<ConfigChangeListener> listeners = new CopyOnWriteArrayList<>();
     private Configuration config;
     private PropertiesConfigurationLayout layout;
+    private volatile ConfigSnapshot snapshot = new ConfigSnapshot(defaults());
+    // modification time and size of the file after the last save made by this class, its watch events are ignored
+    private String savedFileStamp;
 
     @PostConstruct
     private void init() {
@@ -44,7 +62,16 @@ public class Config {
         } catch (IOException e) {
             LOGGER.error("Critical error during creation/loading of configuration file, application will be stopped", e);
         }
+        load(true);
+        watchFile();
+    }
 
+    /**
+     * @param saveDefaults add missing keys with default values to the file, not done on reloads triggered by file
+     *                     edits so a file being edited is not overwritten
+     */
+    private synchronized void load(boolean saveDefaults) {
+        // layout keeps comments of loaded file, a fresh one is needed for every load
         layout = new PropertiesConfigurationLayout();
 
         Parameters params = new Parameters();
@@ -59,7 +86,11 @@ public class Config {
         builder.setAutoSave(true);
         try {
             config = builder.getConfiguration();
-            populateConfig();
+            if (saveDefaults) {
+                populateConfig();
+                savedFileStamp = fileStamp();
+            }
+            refreshSnapshot();
         } catch (ConfigurationException cex) {
             LOGGER.error("Loading of the configuration file failed", cex);
         }
@@ -69,17 +100,173 @@ public class Config {
         Arrays.stream(ConfigKey.values())
                 .forEach(configKey -> {
                     if (!config.containsKey(configKey.getKey())) {
-                        setValue(configKey, configKey.getDefaultValue());
+                        layout.setComment(configKey.getKey(), configKey.getComment());
+                        config.setProperty(configKey.getKey(), configKey.getDefaultValue());
                     }
                 });
     }
 
-    public void setValue(ConfigKey configKey, Object value) {
-        layout.setComment(configKey.getKey(), configKey.getComment());
-        config.setProperty(configKey.getKey(), value);
+    private void watchFile() {
+        WatchService watchService;
+        try {
+            watchService = PROPERTIES_PATH.getFileSystem().newWatchService();
+            PROPERTIES_PATH.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.error("Could not watch configuration file, changes will be applied after restart", e);
+            return;
+        }
+        Thread watcher = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    WatchKey watchKey = watchService.take();
+                    boolean changed = isPropertiesChanged(watchKey);
+                    watchKey.reset();
+                    if (changed) {
+                        Thread.sleep(RELOAD_DELAY_MILLIS);
+                        WatchKey pending = watchService.poll();
+                        if (pending != null) {
+                            pending.pollEvents();
+                            pending.reset();
+                        }
+                        reload();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private synchronized void reload() {
+        String stamp = fileStamp();
+        if (stamp != null && stamp.equals(savedFileStamp)) {
+            LOGGER.debug("Configuration file was saved by application, skipping reload");
+            return;
+        }
+        load(false);
+    }
+
+    /**
+     * @return modification time and size of the configuration file, null if they can't be read
+     */
+    private static String fileStamp() {
+        try {
+            return Files.getLastModifiedTime(PROPERTIES_PATH) + ":" + Files.size(PROPERTIES_PATH);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean isPropertiesChanged(WatchKey watchKey) {
+        return watchKey.pollEvents().stream()
+                .map(WatchEvent::context)
+                .anyMatch(context -> context instanceof Path
+                        && PROPERTIES_PATH.getFileName().equals(((Path) context).getFileName()));
+    }
+
+    public synchronized void setValue(ConfigKey configKey, Object value) {
+        setValues(Map.of(configKey, value));
+    }
+
+    /**
+     * Changes several keys at once, listeners are notified once and never see only some of them changed
+     */
+    public synchronized void setValues(Map<ConfigKey, Object> values) {
+        values.forEach((configKey, value) -> {
+            layout.setComment(configKey.getKey(), configKey.getComment());
+            config.setProperty(configKey.getKey(), value);
+        });
+        savedFileStamp = fileStamp();
+        refreshSnapshot();
+    }
+
+    /**
+     * @return current values, stay the same when configuration changes
+     */
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void addChangeListener(ConfigChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ConfigChangeListener listener) {
+        listeners.remove(listener);
     }
 
     public String getString(ConfigKey configKey) {
+        return snapshot.getString(configKey);
+    }
+
+    public int getInt(ConfigKey configKey) {
+        return snapshot.getInt(configKey);
+    }
+
+    public Collection<String> getStringCollection(ConfigKey configKey) {
+        return snapshot.getStringCollection(configKey);
+    }
+
+    public boolean getBoolean(ConfigKey configKey) {
+        return snapshot.getBoolean(configKey);
+    }
+
+    private void refreshSnapshot() {
+        Map<ConfigKey, Object> values = new EnumMap<>(ConfigKey.class);
+        Arrays.stream(ConfigKey.values()).forEach(configKey -> values.put(configKey, readValue(configKey)));
+        ConfigSnapshot previous = snapshot;
+        ConfigSnapshot current = new ConfigSnapshot(values);
+        snapshot = current;
+
+        Set<ConfigKey> changedKeys = current.changedKeys(previous);
+        if (changedKeys.isEmpty()) {
+            return;
+        }
+        LOGGER.debug("Configuration changed: {}", changedKeys);
+        listeners.forEach(listener -> {
+            try {
+                listener.onConfigChanged(changedKeys, current);
+            } catch (RuntimeException e) {
+                LOGGER.error("Configuration change listener failed", e);
+            }
+        });
+    }
+
+    private static Map<ConfigKey, Object> defaults() {
+        Map<ConfigKey, Object> values = new EnumMap<>(ConfigKey.class);
+        Arrays.stream(ConfigKey.values()).forEach(configKey -> {
+            Object defaultValue = configKey.getDefaultValue();
+            if (defaultValue instanceof Collection) {
+                values.put(configKey, List.copyOf((Collection<?>) defaultValue));
+            } else if (defaultValue instanceof Boolean || defaultValue instanceof Integer) {
+                values.put(configKey, defaultValue);
+            } else {
+                values.put(configKey, defaultValue.toString());
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Converts value to the type of the key default value, default value is used if conversion fails
+     */
+    private Object readValue(ConfigKey configKey) {
+        Object defaultValue = configKey.getDefaultValue();
+        if (defaultValue instanceof Boolean) {
+            return readBoolean(configKey);
+        } else if (defaultValue instanceof Integer) {
+            return readInt(configKey);
+        } else if (defaultValue instanceof Collection) {
+            return List.copyOf(readStringCollection(configKey));
+        } else {
+            return readString(configKey);
+        }
+    }
+
+    private String readString(ConfigKey configKey) {
         try {
             return config.getString(configKey.getKey(), configKey.getDefaultValue().toString());
         } catch (ConversionException e) {
@@ -88,7 +275,7 @@ public class Config {
         }
     }
 
-    public int getInt(ConfigKey configKey) {
+    private int readInt(ConfigKey configKey) {
         try {
             return config.getInt(configKey.getKey(), (int) configKey.getDefaultValue());
         } catch (ConversionException e) {
@@ -98,17 +285,17 @@ public class Config {
     }
 
     @SuppressWarnings("unchecked")
-    public Collection<String> getStringCollection(ConfigKey configKey) {
+    private Collection<String> readStringCollection(ConfigKey configKey) {
         try {
             return config.getCollection(String.class, configKey.getKey(), new ArrayList<>(),
-                    (ArrayList<String>) configKey.getDefaultValue());
+                    (Collection<String>) configKey.getDefaultValue());
         } catch (ConversionException e) {
             LOGGER.error(String.format(DEFAULT_VALUE_MESSAGE, configKey.getKey(), configKey.getDefaultValue()), e);
-            return (LinkedList<String>) configKey.getDefaultValue();
+            return (Collection<String>) configKey.getDefaultValue();
         }
     }
 
-    public boolean getBoolean(ConfigKey configKey) {
+    private boolean readBoolean(ConfigKey configKey) {
         try {
             return config.getBoolean(configKey.getKey(), (boolean) configKey.getDefaultValue());
         } catch (ConversionException e) {
@@ -116,4 +303,4 @@ public class Config {
             return (boolean) configKey.getDefaultValue();
         }
     }
-}
\ No newline at end of file
+}
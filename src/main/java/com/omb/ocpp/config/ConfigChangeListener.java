@@ -0,0 +1,11 @@
+package com.omb.ocpp.config;
+
+import java.util.Set;
+
+public interface ConfigChangeListener {
+    /**
+     * Receives keys which values changed, either by {@link Config#setValue} or by editing the configuration file.
+     * Called on the thread which made the change, listeners should not block.
+     */
+    void onConfigChanged(Set<ConfigKey> changedKeys, ConfigSnapshot snapshot);
+}
@@ -24,14 +24,89 @@ public enum ConfigKey {
     OCPP_AUTH_PASSWORD("ocpp.server.auth.password", "Password that has to be sent by client in order to connect",
             ""),
 
+    OCPP_AUTH_CREDENTIALS_REQUIRED("ocpp.server.auth.credentials.required",
+            "Refuse charge points which have no credentials in $OCPP_SERVER_HOME/credentials.json, otherwise " +
+                    "'ocpp.server.auth.password' is checked for them, default:%s",
+            false),
+
     OCPP_FEATURES_PROFILE_LIST("ocpp.features.profile.list", "List of features supported by server, " +
             "default:Core,FirmwareManagement,RemoteTrigger,LocalAuthList",
             new ArrayList<>(Arrays.asList("Core", "FirmwareManagement", "RemoteTrigger", "LocalAuthList", "ISO15118", "SmartCharging", "SecuritySpec16"))),
 
+    HANDSHAKE_RATE_PER_SECOND("handshake.rate.per.second",
+            "Maximum number of websocket handshakes accepted per second, exceeding handshakes are closed with code " +
+                    "1013 (try again later), 0 - unlimited, default:%s",
+            100),
+
+    HANDSHAKE_MAX_PENDING("handshake.max.pending",
+            "Maximum number of accepted handshakes which did not open OCPP session yet, 0 - unlimited, default:%s",
+            200),
+
+    HANDSHAKE_PENDING_TIMEOUT_SECONDS("handshake.pending.timeout.seconds",
+            "Time in seconds after which accepted handshake is not counted as pending anymore, default:%s",
+            10),
+
     REST_API_PORT("rest.api.port", "port on which REST server will accept connections, default:%s, works in" +
             " combination with 'application.gui.mode:false'",
             9090),
 
+    REST_API_SEND_ALL_TIMEOUT_SECONDS("rest.api.send.all.timeout.seconds",
+            "Time in seconds REST API waits for each client response when request is sent to all clients, " +
+                    "0 - unlimited, default:%s",
+            30),
+
+    BROADCAST_MAX_IN_FLIGHT("broadcast.max.in.flight",
+            "Maximum number of broadcast requests waiting for client response at the same time, 0 - unlimited, " +
+                    "default:%s",
+            100),
+
+    BROADCAST_RATE_PER_SECOND("broadcast.rate.per.second",
+            "Maximum number of broadcast requests sent per second, 0 - unlimited, default:%s",
+            50),
+
+    BROADCAST_RESPONSE_TIMEOUT_SECONDS("broadcast.response.timeout.seconds",
+            "Time in seconds broadcast waits for each client response, default:%s",
+            30),
+
+    SESSIONS_EVENTS_COALESCING_MILLIS("sessions.events.coalescing.millis",
+            "Time in milliseconds session connects and disconnects are collected before listeners (GUI) are " +
+                    "notified, default:%s",
+            200),
+
+    GROOVY_CONFIRMATION_TIMEOUT_SECONDS("groovy.confirmation.timeout.seconds",
+            "Time in seconds server waits for groovy confirmation supplier answer, 0 - unlimited, default:%s",
+            10),
+
+    TRACE_IDENTIFIERS("trace.identifiers",
+            "List of charge point names separated by comma, which messages are logged on DEBUG level, " +
+                    "empty - all charge points",
+            new LinkedList<String>()),
+
+    TRACE_ACTIONS("trace.actions",
+            "List of OCPP actions separated by comma (e.g. Heartbeat,MeterValues), which messages are logged on " +
+                    "DEBUG level, empty - all actions",
+            new LinkedList<String>()),
+
+    JOURNAL_ENABLED("journal.enabled",
+            "Record every received and sent OCPP request to $OCPP_SERVER_HOME/journal, every written batch is " +
+                    "forced to disk and the journal takes up to journal.segment.size.mb * journal.max.segments of " +
+                    "disk space, default:%s",
+            false),
+
+    JOURNAL_SEGMENT_SIZE_MB("journal.segment.size.mb",
+            "Size in megabytes after which journal continues in a new segment file, at most 2047, default:%s",
+            64),
+
+    JOURNAL_MAX_SEGMENTS("journal.max.segments",
+            "Number of journal segment files kept, the oldest segment is deleted when a new one is started, " +
+                    "default:%s",
+            16),
+
+    JOURNAL_QUEUE_SIZE("journal.queue.size",
+            "Maximum number of messages waiting to be written to the journal, messages exceeding it are not " +
+                    "journaled, default:%s",
+            10000),
+
     SSL_ENABLED("ssl.enabled",
             "Run ssl server with ssl context," +
                     "works in combination with 'application.gui.mode:false'",
@@ -51,6 +126,25 @@ public enum ConfigKey {
             "List of keystore ciphers separated by comma, works in combination with 'application.gui.mode:false'",
             new LinkedList<String>()),
 
+    SSL_SESSION_CACHE_SIZE("ssl.session.cache.size",
+            "Maximum number of TLS sessions kept by server for resumption, 0 - unlimited, default:%s",
+            20480),
+
+    SSL_SESSION_TIMEOUT_SECONDS("ssl.session.timeout.seconds",
+            "For how long TLS session can be resumed by reconnecting charge point, 0 - unlimited, default:%s",
+            86400),
+
+    SSL_SESSION_TICKETS_ENABLED("ssl.session.tickets.enabled",
+            "Resume TLS sessions with stateless session tickets instead of server session cache, applied on " +
+                    "restart, needs Java 13+ and is ignored when " +
+                    "-Djdk.tls.server.enableSessionTicketExtension is passed to JVM, default:%s",
+            true),
+
+    TRUST_STORE_WRITE_DELAY_MILLIS("ssl.trust.store.write.delay.millis",
+            "Delay in milliseconds after the first trust store change before the trust store file is written, " +
+                    "changes made meanwhile are written together, default:%s",
+            500),
+
     CERTIFICATE_CHAIN_ADD_ROOT_CA_TO("certificate.chain.add.root.ca",
             "Should ROOT CA be added to certificate chain",
             false),
@@ -59,6 +153,15 @@ public enum ConfigKey {
             "Certificate valid in minutes",
             90),
 
+    CERTIFICATE_SIGNING_THREADS("certificate.signing.threads",
+            "Number of threads signing certificate signing requests, default:%s",
+            Math.max(1, Runtime.getRuntime().availableProcessors())),
+
+    CERTIFICATE_SIGNING_QUEUE_SIZE("certificate.signing.queue.size",
+            "Maximum number of certificate signing requests waiting for a signing thread, exceeding requests fail, " +
+                    "default:%s",
+            1000),
+
     CERTIFICATE_SIGNED_SPEC_VERSION(
             "certificate.signed.spec.version",
             String.format("Version of ocpp signed certificate. Available values are: %s. Default value is: %s", Arrays.toString(OcppCertificateSignedSpecification.values()), OcppCertificateSignedSpecification.OCPP_2_0),
@@ -0,0 +1,50 @@
+package com.omb.ocpp.config;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable values of all {@link ConfigKey}s, converted to the type of their default value when the snapshot is
+ * built. Reads are plain lookups, no conversion or error handling happens on them.
+ */
+public final class ConfigSnapshot {
+    private final Map<ConfigKey, Object> values;
+
+    ConfigSnapshot(Map<ConfigKey, Object> values) {
+        this.values = new EnumMap<>(values);
+    }
+
+    public String getString(ConfigKey configKey) {
+        return values.get(configKey).toString();
+    }
+
+    public int getInt(ConfigKey configKey) {
+        return (int) values.get(configKey);
+    }
+
+    public boolean getBoolean(ConfigKey configKey) {
+        return (boolean) values.get(configKey);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Collection<String> getStringCollection(ConfigKey configKey) {
+        return (Collection<String>) values.get(configKey);
+    }
+
+    /**
+     * @return keys which values differ in the other snapshot
+     */
+    Set<ConfigKey> changedKeys(ConfigSnapshot other) {
+        Set<ConfigKey> changedKeys = EnumSet.noneOf(ConfigKey.class);
+        values.forEach((configKey, value) -> {
+            if (!Objects.equals(value, other.values.get(configKey))) {
+                changedKeys.add(configKey);
+            }
+        });
+        return changedKeys;
+    }
+}
@@ -1,5 +1,6 @@
 package com.omb.ocpp.groovy;
 
+import com.omb.ocpp.groovy.GroovyCompilationCache.CompiledSource;
 import groovy.lang.GroovyClassLoader;
 import org.codehaus.groovy.control.CompilationFailedException;
 import org.codehaus.groovy.control.CompilationUnit;
@@ -11,61 +12,227 @@ import org.codehaus.groovy.tools.GroovyClass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Compiles only groovy sources whose content changed since the previous compilation, together with sources
+ * that refer to them. Classes of the other sources are defined from bytecode kept in {@link GroovyCompilationCache}.
+ */
 public class BatchGroovyClassLoader extends GroovyClassLoader {
     private static final Logger LOGGER = LoggerFactory.getLogger(BatchGroovyClassLoader.class);
     private final CompilerConfiguration compilerConfiguration = new CompilerConfiguration();
     private final ErrorCollector errorCollector = new ErrorCollector(compilerConfiguration);
+    private final GroovyCompilationCache compilationCache;
+    private final Map<String, byte[]> precompiledClasses = new HashMap<>();
+    private final Set<String> precompiledClassNames = new HashSet<>();
 
-    public List<Class> parseClasses(List<Path> groovyFiles) {
+    BatchGroovyClassLoader(GroovyCompilationCache compilationCache) {
+        this.compilationCache = compilationCache;
+    }
+
+    public List<Class<?>> parseClasses(List<Path> groovyFiles) {
         if (groovyFiles == null || groovyFiles.isEmpty()) {
+            compilationCache.clear();
+            compilationCache.deleteUnused();
+            compilationCache.persist();
             return new LinkedList<>();
-        } else {
-            return compileGroovyFiles(groovyFiles);
         }
-    }
 
-    private List<Class> compileGroovyFiles(List<Path> groovyFiles) {
-        List<SourceUnit> sourceUnits = getGroovySources(groovyFiles);
-        if (sourceUnits.isEmpty()) {
-            LOGGER.error("No groovy sources found for compilation");
+        Map<Path, byte[]> contents = readSources(groovyFiles);
+        Map<Path, String> hashes = new HashMap<>();
+        contents.forEach((path, content) -> hashes.put(path, GroovyCompilationCache.hash(content)));
+
+        Set<Path> changed = new LinkedHashSet<>();
+        Set<Path> removed = new HashSet<>(compilationCache.getSources());
+        removed.removeAll(contents.keySet());
+        contents.keySet().forEach(path -> {
+            boolean upToDate = compilationCache.get(path)
+                    .map(compiledSource -> compiledSource.getHash().equals(hashes.get(path)))
+                    .orElse(false);
+            if (!upToDate) {
+                changed.add(path);
+            }
+        });
+
+        Set<Path> toCompile = withDependents(changed, removed, contents);
+        removed.forEach(compilationCache::remove);
+        List<Path> unchanged = contents.keySet().stream()
+                .filter(path -> !toCompile.contains(path))
+                .collect(Collectors.toList());
+        for (Path path : unchanged) {
+            Optional<Map<String, byte[]>> classes = compilationCache.get(path).flatMap(compilationCache::loadClasses);
+            if (classes.isPresent()) {
+                precompiledClasses.putAll(classes.get());
+            } else {
+                toCompile.add(path);
+            }
+        }
+        precompiledClassNames.addAll(precompiledClasses.keySet());
+        LOGGER.info("Compiling {} of {} groovy files", toCompile.size(), contents.size());
+
+        List<Class<?>> classes = compileGroovyFiles(toCompile, hashes);
+        if (classes == null && !precompiledClassNames.isEmpty()) {
+            // cached classes may already be defined in this loader, so start over with an empty cache in a new one
+            LOGGER.warn("Incremental groovy compilation failed, compiling all groovy files");
+            compilationCache.clear();
+            return new BatchGroovyClassLoader(compilationCache).parseClasses(groovyFiles);
+        }
+        if (classes == null) {
             return new LinkedList<>();
         }
+        List<Class<?>> precompiled = definePrecompiledClasses();
+        if (precompiled == null) {
+            LOGGER.warn("Cached groovy classes could not be defined, compiling all groovy files");
+            compilationCache.clear();
+            return new BatchGroovyClassLoader(compilationCache).parseClasses(groovyFiles);
+        }
+        classes.addAll(precompiled);
+        compilationCache.deleteUnused();
+        compilationCache.persist();
+        return classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = precompiledClasses.remove(name);
+        if (bytes == null) {
+            return super.findClass(name);
+        }
+        Class<?> clazz = defineClass(name, bytes);
+        setClassCacheEntry(clazz);
+        return clazz;
+    }
+
+    /**
+     * @return compiled classes or null if compilation failed
+     */
+    private List<Class<?>> compileGroovyFiles(Set<Path> groovyFiles, Map<Path, String> hashes) {
+        if (groovyFiles.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<SourceUnit, Path> sourceUnits = getGroovySources(groovyFiles);
 
         InnerLoader innerLoader = new InnerLoader(this);
         CompilationUnit compilationUnit = new CompilationUnit(innerLoader);
         compilationUnit.setConfiguration(compilerConfiguration);
-        sourceUnits.forEach(compilationUnit::addSource);
+        sourceUnits.keySet().forEach(compilationUnit::addSource);
 
         try {
             compilationUnit.compile(Phases.CLASS_GENERATION);
         } catch (CompilationFailedException e) {
             LOGGER.error("Failed to compile groovy files", e);
-            return new LinkedList<>();
+            return null;
         }
 
-        List<Class> classes = (List<Class>) compilationUnit.getClasses().stream()
-                .map(groovyClass -> defineClass((GroovyClass) groovyClass))
-                .collect(Collectors.toList());
+        Map<String, Path> sourceByClassName = new HashMap<>();
+        sourceUnits.forEach((sourceUnit, path) -> sourceUnit.getAST().getClasses()
+                .forEach(classNode -> sourceByClassName.put(classNode.getName(), path)));
+
+        Map<Path, Map<String, byte[]>> bytesBySource = new HashMap<>();
+        groovyFiles.forEach(path -> bytesBySource.put(path, new HashMap<>()));
+        List<Class<?>> classes = new ArrayList<>();
+        for (Object compiled : compilationUnit.getClasses()) {
+            GroovyClass groovyClass = (GroovyClass) compiled;
+            Path source = sourceByClassName.get(outerClassName(groovyClass.getName()));
+            if (source != null) {
+                bytesBySource.get(source).put(groovyClass.getName(), groovyClass.getBytes());
+            }
+            classes.add(defineClass(groovyClass));
+        }
+        bytesBySource.forEach((path, bytes) -> compilationCache.store(path, hashes.get(path), bytes));
+        return classes;
+    }
+
+    /**
+     * @return defined classes or null if any of them could not be defined, e.g. it links against changed classes
+     */
+    private List<Class<?>> definePrecompiledClasses() {
+        List<Class<?>> classes = new ArrayList<>();
+        for (String className : precompiledClassNames) {
+            try {
+                classes.add(loadClass(className));
+            } catch (ClassNotFoundException | LinkageError e) {
+                LOGGER.warn(String.format("Could not define cached groovy class %s", className), e);
+                return null;
+            }
+        }
         return classes;
     }
 
-    private Class defineClass(GroovyClass groovyClass) {
-        Class clazz = this.defineClass(groovyClass.getName(), groovyClass.getBytes());
+    private Class<?> defineClass(GroovyClass groovyClass) {
+        Class<?> clazz = this.defineClass(groovyClass.getName(), groovyClass.getBytes());
         setClassCacheEntry(clazz);
         return clazz;
     }
 
-    private List<SourceUnit> getGroovySources(List<Path> groovyFiles) {
-        return groovyFiles.stream()
-                .map(path -> {
-                    LOGGER.debug("Added file for compilation {} ", path);
-                    return new SourceUnit(path.toFile(), compilerConfiguration, this, errorCollector);
-                })
-                .collect(Collectors.toList());
+    /**
+     * Adds to changed sources every source which mentions a class of changed or removed source, transitively
+     */
+    private Set<Path> withDependents(Set<Path> changed, Set<Path> removed, Map<Path, byte[]> contents) {
+        Set<Path> result = new LinkedHashSet<>(changed);
+        Deque<Path> queue = new ArrayDeque<>(changed);
+        queue.addAll(removed);
+        Map<Path, String> texts = new HashMap<>();
+        while (!queue.isEmpty()) {
+            Optional<CompiledSource> compiledSource = compilationCache.get(queue.poll());
+            if (compiledSource.isEmpty()) {
+                continue;
+            }
+            List<String> referenceNames = compiledSource.get().getReferenceNames();
+            for (Path candidate : contents.keySet()) {
+                if (result.contains(candidate)) {
+                    continue;
+                }
+                String text = texts.computeIfAbsent(candidate,
+                        path -> new String(contents.get(path), StandardCharsets.UTF_8));
+                if (referenceNames.stream().anyMatch(text::contains)) {
+                    LOGGER.debug("{} depends on changed source, recompiling", candidate);
+                    result.add(candidate);
+                    queue.add(candidate);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<Path, byte[]> readSources(List<Path> groovyFiles) {
+        Map<Path, byte[]> contents = new HashMap<>();
+        groovyFiles.forEach(path -> {
+            try {
+                contents.put(path, Files.readAllBytes(path));
+            } catch (IOException e) {
+                LOGGER.error(String.format("Could not read groovy file %s", path), e);
+            }
+        });
+        return contents;
+    }
+
+    private Map<SourceUnit, Path> getGroovySources(Set<Path> groovyFiles) {
+        Map<SourceUnit, Path> sourceUnits = new HashMap<>();
+        groovyFiles.forEach(path -> {
+            LOGGER.debug("Added file for compilation {} ", path);
+            sourceUnits.put(new SourceUnit(path.toFile(), compilerConfiguration, this, errorCollector), path);
+        });
+        return sourceUnits;
+    }
+
+    private static String outerClassName(String className) {
+        int innerSeparator = className.indexOf('$');
+        return innerSeparator > 0 ? className.substring(0, innerSeparator) : className;
     }
 }
@@ -5,9 +5,23 @@ import eu.chargetime.ocpp.model.Request;
 
 import java.time.Instant;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 public interface ConfirmationSupplier<REQUEST extends Request, RESPONSE extends Confirmation> {
     RESPONSE getConfirmation(UUID sessionUuid, REQUEST request);
 
+    /**
+     * Override in suppliers which call slow backends, so the answer is produced without holding the calling thread.
+     * By default delegates to {@link #getConfirmation(UUID, Request)}.
+     */
+    default CompletionStage<RESPONSE> getConfirmationAsync(UUID sessionUuid, REQUEST request) {
+        try {
+            return CompletableFuture.completedFuture(getConfirmation(sessionUuid, request));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     Instant getClassLoadDate();
 }
@@ -0,0 +1,239 @@
+package com.omb.ocpp.groovy;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import groovy.lang.GroovySystem;
+import org.bouncycastle.util.encoders.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.omb.ocpp.gui.Application.OCPP_SERVER_HOME;
+
+/**
+ * Remembers which classes every groovy source produced and keeps their bytecode on disk, keyed by source content
+ * hash, so unchanged sources don't have to be compiled again.
+ * The index is persisted to a manifest, so precompiled classes are reused after restart as well. The manifest records
+ * groovy version and a fingerprint of the application classpath, cached bytecode is not used once either changes
+ * because it may link against changed application classes.
+ */
+class GroovyCompilationCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroovyCompilationCache.class);
+    static final Path CACHE_FOLDER = Paths.get(OCPP_SERVER_HOME, "groovy-cache");
+    private static final Path MANIFEST_PATH = CACHE_FOLDER.resolve("manifest.json");
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    private static final String CLASSPATH_FINGERPRINT = classpathFingerprint();
+
+    private final Map<Path, CompiledSource> compiledSources = new HashMap<>();
+
+    GroovyCompilationCache() {
+        loadManifest();
+    }
+
+    Optional<CompiledSource> get(Path source) {
+        return Optional.ofNullable(compiledSources.get(source));
+    }
+
+    Set<Path> getSources() {
+        return Collections.unmodifiableSet(compiledSources.keySet());
+    }
+
+    /**
+     * Loads bytecode of all classes compiled from the source
+     *
+     * @return class name to bytecode, empty if any of class files is missing
+     */
+    Optional<Map<String, byte[]>> loadClasses(CompiledSource compiledSource) {
+        Map<String, byte[]> classes = new HashMap<>();
+        for (String className : compiledSource.getClassNames()) {
+            Path classFile = classFile(compiledSource.getHash(), className);
+            try {
+                classes.put(className, Files.readAllBytes(classFile));
+            } catch (IOException e) {
+                LOGGER.warn("Cached class {} is not readable, source will be recompiled", classFile);
+                return Optional.empty();
+            }
+        }
+        return Optional.of(classes);
+    }
+
+    void store(Path source, String hash, Map<String, byte[]> classes) {
+        try {
+            Files.createDirectories(CACHE_FOLDER.resolve(hash));
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                Files.write(classFile(hash, entry.getKey()), entry.getValue());
+            }
+            compiledSources.put(source, new CompiledSource(hash, classes.keySet()));
+        } catch (IOException e) {
+            LOGGER.warn(String.format("Could not cache compiled classes of %s", source), e);
+            compiledSources.remove(source);
+        }
+    }
+
+    void remove(Path source) {
+        compiledSources.remove(source);
+    }
+
+    void clear() {
+        compiledSources.clear();
+    }
+
+    /**
+     * Deletes bytecode folders which are not referenced by any known source anymore
+     */
+    void deleteUnused() {
+        Set<String> usedHashes = new HashSet<>();
+        compiledSources.values().forEach(compiledSource -> usedHashes.add(compiledSource.getHash()));
+        if (!Files.isDirectory(CACHE_FOLDER)) {
+            return;
+        }
+        try (Stream<Path> folders = Files.list(CACHE_FOLDER)) {
+            folders.filter(folder -> Files.isDirectory(folder) && !usedHashes.contains(folder.getFileName().toString()))
+                    .forEach(GroovyCompilationCache::deleteRecursively);
+        } catch (IOException e) {
+            LOGGER.warn(String.format("Could not clean up %s", CACHE_FOLDER), e);
+        }
+    }
+
+    void persist() {
+        Manifest manifest = new Manifest();
+        manifest.groovyVersion = GroovySystem.getVersion();
+        manifest.classpathFingerprint = CLASSPATH_FINGERPRINT;
+        compiledSources.forEach((path, compiledSource) -> manifest.sources.put(path.toString(), compiledSource));
+        try {
+            Files.createDirectories(CACHE_FOLDER);
+            Path tmp = Files.createTempFile(CACHE_FOLDER, "manifest", ".tmp");
+            Files.writeString(tmp, new GsonBuilder().setPrettyPrinting().create().toJson(manifest));
+            Files.move(tmp, MANIFEST_PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn(String.format("Could not write %s", MANIFEST_PATH), e);
+        }
+    }
+
+    private void loadManifest() {
+        if (!Files.exists(MANIFEST_PATH)) {
+            return;
+        }
+        try {
+            Manifest manifest = new Gson().fromJson(Files.readString(MANIFEST_PATH), Manifest.class);
+            if (manifest == null || manifest.sources == null
+                    || !GroovySystem.getVersion().equals(manifest.groovyVersion)
+                    || !CLASSPATH_FINGERPRINT.equals(manifest.classpathFingerprint)) {
+                LOGGER.info("Groovy compilation cache was created by other groovy or application version, ignoring it");
+                return;
+            }
+            manifest.sources.forEach((path, compiledSource) -> {
+                if (compiledSource.getHash() != null && compiledSource.getClassNames() != null) {
+                    compiledSources.put(Paths.get(path), compiledSource);
+                }
+            });
+            LOGGER.debug("Loaded groovy compilation cache of {} sources", compiledSources.size());
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn(String.format("Could not read %s, groovy files will be compiled", MANIFEST_PATH), e);
+        }
+    }
+
+    static String hash(byte[] content) {
+        try {
+            return new String(Hex.encode(MessageDigest.getInstance("SHA-256").digest(content)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * @return hash of classpath entries with their sizes and modification times, entries of class folders included
+     */
+    private static String classpathFingerprint() {
+        StringBuilder entries = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            Path path = Paths.get(entry);
+            try (Stream<Path> files = Files.isDirectory(path) ? Files.walk(path) : Stream.of(path)) {
+                files.filter(Files::isRegularFile).sorted().forEach(file -> entries.append(fileStamp(file)));
+            } catch (IOException | UncheckedIOException e) {
+                entries.append(entry).append('\n');
+            }
+        }
+        return hash(entries.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String fileStamp(Path file) {
+        try {
+            return String.format("%s:%d:%d%n", file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException e) {
+            return file + "\n";
+        }
+    }
+
+    private static Path classFile(String hash, String className) {
+        return CACHE_FOLDER.resolve(hash).resolve(className + CLASS_FILE_EXTENSION);
+    }
+
+    private static void deleteRecursively(Path folder) {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            LOGGER.warn(String.format("Could not delete %s", folder), e);
+        }
+    }
+
+    private static class Manifest {
+        private String groovyVersion;
+        private String classpathFingerprint;
+        private Map<String, CompiledSource> sources = new HashMap<>();
+    }
+
+    static class CompiledSource {
+        private final String hash;
+        private final Set<String> classNames;
+
+        CompiledSource(String hash, Collection<String> classNames) {
+            this.hash = hash;
+            this.classNames = Set.copyOf(classNames);
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        Set<String> getClassNames() {
+            return classNames;
+        }
+
+        /**
+         * @return names under which other sources may refer to classes of this source, inner and closure classes
+         * are referred through their outer class
+         */
+        List<String> getReferenceNames() {
+            Set<String> names = new HashSet<>();
+            classNames.forEach(className -> {
+                String simpleName = className.substring(className.lastIndexOf('.') + 1);
+                int innerSeparator = simpleName.indexOf('$');
+                names.add(innerSeparator > 0 ? simpleName.substring(0, innerSeparator) : simpleName);
+            });
+            return List.copyOf(names);
+        }
+    }
+}
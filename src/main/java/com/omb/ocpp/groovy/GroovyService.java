@@ -1,11 +1,14 @@
 package com.omb.ocpp.groovy;
 
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
 import eu.chargetime.ocpp.model.Confirmation;
 import eu.chargetime.ocpp.model.Request;
 import org.jvnet.hk2.annotations.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -21,11 +24,17 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -39,9 +48,34 @@ public class GroovyService {
     private static final Path SUPPLIERS_FOLDER = Paths.get(GROOVY_PROJECT_FOLDER.toString(), "src", "main", "groovy", "com",
             "omb", "ocpp", "groovy", "supplier");
 
-    private final Map<Class<? extends Request>, ConfirmationSupplier<Request, Confirmation>> confirmationSuppliers =
-            new HashMap<>();
+    private static final Instant LOAD_DATE = Instant.now();
+    private static final ConfirmationSupplier<Request, Confirmation> NO_CONFIRMATION_SUPPLIER = new ConfirmationSupplier<>() {
+        @Override
+        public Confirmation getConfirmation(UUID sessionUuid, Request request) {
+            return null;
+        }
+
+        @Override
+        public Instant getClassLoadDate() {
+            return LOAD_DATE;
+        }
+    };
+
+    /**
+     * Immutable snapshot, replaced as a whole on reload so request handling never takes a lock
+     */
+    private volatile Map<Class<? extends Request>, ConfirmationSupplier<Request, Confirmation>> confirmationSuppliers =
+            Map.of();
+    // suppliers overriding getConfirmationAsync, others are called directly without any future
+    private volatile Set<Class<?>> asyncSupplierClasses = Set.of();
     private Consumer<Void> groovyCacheChangedListener = aVoid -> LOGGER.debug("No listeners attached");
+    private final Config config;
+    private GroovyCompilationCache compilationCache;
+
+    @Inject
+    public GroovyService(Config config) {
+        this.config = config;
+    }
 
     public void loadGroovyScripts() {
         try {
@@ -56,15 +90,25 @@ public class GroovyService {
     }
 
     public synchronized void reloadGroovyFiles() {
-        confirmationSuppliers.clear();
+        Map<Class<? extends Request>, ConfirmationSupplier<Request, Confirmation>> suppliers = new HashMap<>();
+        Set<Class<?>> asyncClasses = new HashSet<>();
 
-        List<Class> classes = new BatchGroovyClassLoader().parseClasses(getGroovyFiles());
+        if (compilationCache == null) {
+            compilationCache = new GroovyCompilationCache();
+        }
+        List<Class<?>> classes = new BatchGroovyClassLoader(compilationCache).parseClasses(getGroovyFiles());
         classes.stream()
                 .filter(aClass -> aClass.getGenericInterfaces().length != 0
                         && aClass.getGenericInterfaces()[0] instanceof ParameterizedType
                         && ((ParameterizedType) aClass.getGenericInterfaces()[0]).getRawType().equals(ConfirmationSupplier.class))
-                .forEach(this::putToCache);
-
+                .forEach(aClass -> putToCache(suppliers, aClass));
+
+        suppliers.values().stream()
+                .map(Object::getClass)
+                .filter(GroovyService::overridesAsync)
+                .forEach(asyncClasses::add);
+        asyncSupplierClasses = Set.copyOf(asyncClasses);
+        confirmationSuppliers = Map.copyOf(suppliers);
         groovyCacheChangedListener.accept(null);
     }
 
@@ -91,35 +135,86 @@ public class GroovyService {
     }
 
     @SuppressWarnings("unchecked")
-    private void putToCache(Class<ConfirmationSupplier> aClass) {
+    private void putToCache(Map<Class<? extends Request>, ConfirmationSupplier<Request, Confirmation>> suppliers,
+                            Class<?> aClass) {
         try {
-            confirmationSuppliers.put((Class<? extends Request>) ((ParameterizedType) aClass.getGenericInterfaces()[0]).getActualTypeArguments()[0],
-                    aClass.getConstructor().newInstance());
+            suppliers.put((Class<? extends Request>) ((ParameterizedType) aClass.getGenericInterfaces()[0]).getActualTypeArguments()[0],
+                    (ConfirmationSupplier<Request, Confirmation>) aClass.getConstructor().newInstance());
         } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
             LOGGER.error(String.format("Could not instantiate Confirmation supplier: %s", aClass), e);
         }
     }
 
+    /**
+     * Confirmation for the OCPP event handlers, which are synchronous and always block the calling thread until
+     * the answer is ready. Synchronous suppliers are called directly. For suppliers overriding
+     * {@link ConfirmationSupplier#getConfirmationAsync} the thread waits at most
+     * {@link ConfigKey#GROOVY_CONFIRMATION_TIMEOUT_SECONDS} and answers with no confirmation after that, the supplier
+     * stage is cancelled but work already started by the supplier is not interrupted.
+     */
     @SuppressWarnings("unchecked")
-    public synchronized <T extends Confirmation> T getConfirmation(UUID sessionUuid, Request request) {
+    public <T extends Confirmation> T getConfirmation(UUID sessionUuid, Request request) {
+        ConfirmationSupplier<Request, Confirmation> supplier =
+                confirmationSuppliers.getOrDefault(request.getClass(), NO_CONFIRMATION_SUPPLIER);
+        if (!asyncSupplierClasses.contains(supplier.getClass())) {
+            try {
+                return (T) supplier.getConfirmation(sessionUuid, request);
+            } catch (Exception e) {
+                LOGGER.error("Error in groovy confirmation supplier", e);
+                return null;
+            }
+        }
+        CompletableFuture<Confirmation> confirmation;
         try {
-            return (T) Optional.ofNullable(confirmationSuppliers.get(request.getClass()))
-                    .orElse(new ConfirmationSupplier<>() {
-                        @Override
-                        public Confirmation getConfirmation(UUID sessionUuid, Request request) {
-                            return null;
-                        }
-
-                        @Override
-                        public Instant getClassLoadDate() {
-                            return Instant.now();
-                        }
-                    })
-                    .getConfirmation(sessionUuid, request);
+            confirmation = supplier.getConfirmationAsync(sessionUuid, request).toCompletableFuture();
         } catch (Exception e) {
             LOGGER.error("Error in groovy confirmation supplier", e);
             return null;
         }
+        int timeout = config.getInt(ConfigKey.GROOVY_CONFIRMATION_TIMEOUT_SECONDS);
+        try {
+            return (T) (timeout > 0 ? confirmation.get(timeout, TimeUnit.SECONDS) : confirmation.get());
+        } catch (TimeoutException e) {
+            LOGGER.error("Groovy confirmation supplier did not answer {} within {} seconds",
+                    request.getClass().getSimpleName(), timeout);
+            confirmation.cancel(false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            LOGGER.error("Error in groovy confirmation supplier", e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * @return stage completed with the supplier confirmation, or with null if supplier is missing or failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Confirmation> CompletionStage<T> getConfirmationAsync(UUID sessionUuid, Request request) {
+        CompletionStage<Confirmation> confirmation;
+        try {
+            confirmation = confirmationSuppliers.getOrDefault(request.getClass(), NO_CONFIRMATION_SUPPLIER)
+                    .getConfirmationAsync(sessionUuid, request);
+        } catch (Exception e) {
+            confirmation = CompletableFuture.failedFuture(e);
+        }
+        return confirmation.handle((result, throwable) -> {
+            if (throwable != null) {
+                LOGGER.error("Error in groovy confirmation supplier", throwable);
+                return null;
+            }
+            return (T) result;
+        });
+    }
+
+    private static boolean overridesAsync(Class<?> supplierClass) {
+        try {
+            return !supplierClass.getMethod("getConfirmationAsync", UUID.class, Request.class).isDefault();
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
     }
 
     public List<ConfirmationSupplier> getConfirmationSuppliers() {
@@ -5,6 +5,7 @@ import com.omb.ocpp.config.ConfigKey;
 import com.omb.ocpp.groovy.GroovyService;
 import com.omb.ocpp.rest.WebServer;
 import com.omb.ocpp.security.certificate.api.KeystoreApi;
+import com.omb.ocpp.security.certificate.service.InitializeSslContextService;
 import com.omb.ocpp.server.OcppServerService;
 import com.omb.ocpp.server.SslContextConfig;
 import org.glassfish.hk2.api.ServiceLocator;
@@ -45,6 +46,7 @@ public class Application {
     private Config config;
 
     public Application() {
+        InitializeSslContextService.applySessionTicketsSetting(applicationContext.getService(Config.class));
         applicationContext.inject(this);
     }
 
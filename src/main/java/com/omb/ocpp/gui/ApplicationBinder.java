@@ -3,14 +3,21 @@ package com.omb.ocpp.gui;
 import com.omb.ocpp.config.Config;
 import com.omb.ocpp.groovy.GroovyService;
 import com.omb.ocpp.rest.WebServer;
+import com.omb.ocpp.security.TlsSessionMetrics;
 import com.omb.ocpp.security.certificate.api.KeystoreApi;
 import com.omb.ocpp.security.certificate.api.KeystoreApiImpl;
 import com.omb.ocpp.security.certificate.service.TrustStoreService;
 import com.omb.ocpp.server.OcppServerService;
+import com.omb.ocpp.server.SessionRegistry;
+import com.omb.ocpp.server.admission.HandshakeAdmissionController;
+import com.omb.ocpp.server.auth.CredentialStore;
+import com.omb.ocpp.server.broadcast.BroadcastService;
 import com.omb.ocpp.server.handler.CoreEventHandler;
 import com.omb.ocpp.server.handler.FirmwareManagementEventHandler;
 import com.omb.ocpp.server.handler.ISO15118EventHandler;
+import com.omb.ocpp.server.journal.MessageJournal;
 import com.omb.ocpp.server.security.spec16ed2.handler.SecuritySpec16EventHandler;
+import com.omb.ocpp.server.trace.MessageTracer;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
 import javax.inject.Singleton;
@@ -20,7 +27,14 @@ public class ApplicationBinder extends AbstractBinder {
     protected void configure() {
         bind(Config.class).to(Config.class).in(Singleton.class);
         bind(GroovyService.class).to(GroovyService.class).in(Singleton.class);
+        bind(SessionRegistry.class).to(SessionRegistry.class).in(Singleton.class);
+        bind(MessageJournal.class).to(MessageJournal.class).in(Singleton.class);
+        bind(MessageTracer.class).to(MessageTracer.class).in(Singleton.class);
+        bind(HandshakeAdmissionController.class).to(HandshakeAdmissionController.class).in(Singleton.class);
+        bind(CredentialStore.class).to(CredentialStore.class).in(Singleton.class);
+        bind(TlsSessionMetrics.class).to(TlsSessionMetrics.class).in(Singleton.class);
         bind(OcppServerService.class).to(OcppServerService.class).in(Singleton.class);
+        bind(BroadcastService.class).to(BroadcastService.class).in(Singleton.class);
         bind(WebServer.class).to(WebServer.class).in(Singleton.class);
         bind(CoreEventHandler.class).to(CoreEventHandler.class).in(Singleton.class);
         bind(FirmwareManagementEventHandler.class).to(FirmwareManagementEventHandler.class).in(Singleton.class);
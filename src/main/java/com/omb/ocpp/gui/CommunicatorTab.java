@@ -4,6 +4,7 @@ import com.omb.ocpp.config.Config;
 import com.omb.ocpp.config.ConfigKey;
 import com.omb.ocpp.server.Feature;
 import com.omb.ocpp.server.OcppServerService;
+import com.omb.ocpp.server.SessionRegistry;
 import com.omb.ocpp.server.SessionsListener;
 import com.omb.ocpp.server.iso15118.dto.InstallCertificateRequest;
 import com.omb.ocpp.server.iso15118.dto.SignedUpdateFirmwareRequest;
@@ -36,6 +37,7 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TextArea;
@@ -51,14 +53,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static com.omb.ocpp.gui.StubRequestsFactory.toRequest;
 
@@ -66,7 +70,16 @@ import static com.omb.ocpp.gui.StubRequestsFactory.toRequest;
 public class CommunicatorTab {
     private static final Logger logger = LoggerFactory.getLogger(CommunicatorTab.class);
 
-    private final ListView<String> sessionsList = new ListView<>();
+    /**
+     * Items are session UUIDs, so sessions of the same charge point from the same address stay apart
+     */
+    private final ListView<UUID> sessionsList = new ListView<>();
+    private final ObservableList<UUID> sessionItems = FXCollections.observableArrayList();
+    /**
+     * Session UUID to its label, accessed only from FX thread
+     */
+    private final Map<UUID, String> displayedSessions = new HashMap<>();
+    private UUID selectedSession;
     private final TextField selectedClientField = new TextField();
     private final ComboBox<Class<? extends Request>> messageTypeCombo = new ComboBox<>();
     private final TextArea messageTextArea = new TextArea();
@@ -74,10 +87,12 @@ public class CommunicatorTab {
     private final Config config;
 
     private final OcppServerService ocppServerService;
+    private final SessionRegistry sessionRegistry;
 
     @Inject
     public CommunicatorTab(ServiceLocator applicationContext) {
         this.ocppServerService = applicationContext.getService(OcppServerService.class);
+        this.sessionRegistry = applicationContext.getService(SessionRegistry.class);
         this.config = applicationContext.getService(Config.class);
     }
 
@@ -86,13 +101,22 @@ public class CommunicatorTab {
         tab.setText("Communicator");
         tab.setClosable(false);
 
-        ObservableList<String> items = FXCollections.observableArrayList(
-                getSessionsListFormatted(ocppServerService.getSessionList()));
-        sessionsList.setItems(items);
+        sessionsList.setItems(sessionItems);
         sessionsList.setMinWidth(200);
-        sessionsList.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) ->
-                selectedClientField.setText(newValue));
+        sessionsList.setCellFactory(param -> new ListCell<>() {
+            @Override
+            protected void updateItem(UUID sessionUuid, boolean empty) {
+                super.updateItem(sessionUuid, empty);
+                setText(empty || sessionUuid == null ? null : displayedSessions.get(sessionUuid));
+            }
+        });
+        sessionsList.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
+            selectedSession = newValue;
+            selectedClientField.setText(newValue == null ? null : displayedSessions.get(newValue));
+        });
+        // listener first, so sessions connected meanwhile are not lost, duplicates are skipped by applyChanges
         ocppServerService.setSessionsListener(new GuiSessionsListener());
+        applyChanges(sessionRegistry.snapshot(), Map.of());
         selectedClientField.setPromptText("Selected client");
         selectedClientField.setEditable(false);
 
@@ -132,12 +156,10 @@ public class CommunicatorTab {
         vBox.setFillWidth(true);
 
         sendButton.setOnAction(event -> {
-            if (selectedClientField.getText() != null
-                    && !selectedClientField.getText().isEmpty()
-                    && !selectedClientField.getText().equals("NONE")) {
+            if (selectedSession != null && displayedSessions.containsKey(selectedSession)) {
                 Optional<? extends Request> request = toRequest(messageTextArea.getText(), messageTypeCombo.getValue());
                 if (request.isPresent()) {
-                    ocppServerService.send(request.get(), selectedClientField.getText());
+                    ocppServerService.send(request.get(), selectedSession, displayedSessions.get(selectedSession));
                 } else {
                     logger.error("Request parsing error, request: {}", messageTextArea.getText());
                 }
@@ -208,23 +230,41 @@ public class CommunicatorTab {
     }
 
 
-    private static List<String> getSessionsListFormatted(Map<UUID, SessionInformation> sessions) {
-        return sessions.values().stream()
-                .map(sessionInformation ->
-                        String.format("%s (%s)", sessionInformation.getIdentifier(), sessionInformation.getAddress()))
-                .collect(Collectors.toList());
+    /**
+     * Applies a batch of session changes with a single add and a single remove on the list
+     */
+    private void applyChanges(Map<UUID, SessionInformation> addedSessions,
+                              Map<UUID, SessionInformation> removedSessions) {
+        Set<UUID> removedItems = new HashSet<>();
+        removedSessions.keySet().forEach(sessionUuid -> {
+            if (displayedSessions.remove(sessionUuid) != null) {
+                removedItems.add(sessionUuid);
+            }
+        });
+        List<UUID> addedItems = new ArrayList<>();
+        addedSessions.forEach((sessionUuid, sessionInformation) -> {
+            if (!displayedSessions.containsKey(sessionUuid)) {
+                displayedSessions.put(sessionUuid, formatSession(sessionInformation));
+                addedItems.add(sessionUuid);
+            }
+        });
+        if (!removedItems.isEmpty()) {
+            sessionItems.removeAll(removedItems);
+        }
+        if (!addedItems.isEmpty()) {
+            sessionItems.addAll(addedItems);
+        }
+    }
+
+    private static String formatSession(SessionInformation sessionInformation) {
+        return String.format("%s (%s)", sessionInformation.getIdentifier(), sessionInformation.getAddress());
     }
 
     private class GuiSessionsListener implements SessionsListener {
         @Override
-        public void onSessionsCountChange(Map<UUID, SessionInformation> sessions) {
-            Platform.runLater(() -> {
-                ObservableList<String> items = FXCollections.observableArrayList(
-                        getSessionsListFormatted(sessions));
-                sessionsList.setItems(items);
-            });
+        public void onSessionsChanged(Map<UUID, SessionInformation> addedSessions,
+                                      Map<UUID, SessionInformation> removedSessions) {
+            Platform.runLater(() -> applyChanges(addedSessions, removedSessions));
         }
     }
 }
-
-
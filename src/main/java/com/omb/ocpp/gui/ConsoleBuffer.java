@@ -0,0 +1,80 @@
+package com.omb.ocpp.gui;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects console output written by any thread until the UI takes it.
+ * Complete lines are kept in a fixed size ring, when UI falls behind the oldest lines are overwritten,
+ * so memory stays bounded no matter how fast logs are produced.
+ */
+class ConsoleBuffer {
+    private static final int LINE_FEED = '\n';
+    private static final int CARRIAGE_RETURN = '\r';
+
+    private final ConsoleLine[] ring;
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream(256);
+    private int head;
+    private int size;
+    private long dropped;
+    private long lastDroppedId;
+    private long nextId;
+
+    ConsoleBuffer(int capacity) {
+        this.ring = new ConsoleLine[capacity];
+    }
+
+    synchronized void append(byte[] bytes, int offset, int length) {
+        int lineStart = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == LINE_FEED) {
+                partialLine.write(bytes, lineStart, i - lineStart);
+                addLine();
+                lineStart = i + 1;
+            }
+        }
+        partialLine.write(bytes, lineStart, end - lineStart);
+    }
+
+    /**
+     * @return lines completed since previous call, oldest first, preceded by a marker if some lines were dropped
+     */
+    synchronized List<ConsoleLine> drain() {
+        List<ConsoleLine> lines = new ArrayList<>(size + 1);
+        if (dropped > 0) {
+            // marker takes id of the last dropped line, so ids keep growing in the order lines are shown
+            lines.add(new ConsoleLine(lastDroppedId, String.format("... %d lines skipped ...", dropped)));
+            dropped = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % ring.length;
+            lines.add(ring[index]);
+            ring[index] = null;
+        }
+        head = 0;
+        size = 0;
+        return lines;
+    }
+
+    private void addLine() {
+        byte[] bytes = partialLine.toByteArray();
+        partialLine.reset();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == CARRIAGE_RETURN) {
+            length--;
+        }
+        ConsoleLine line = new ConsoleLine(nextId++, new String(bytes, 0, length, StandardCharsets.UTF_8));
+        if (size == ring.length) {
+            lastDroppedId = ring[head].getId();
+            ring[head] = line;
+            head = (head + 1) % ring.length;
+            dropped++;
+        } else {
+            ring[(head + size) % ring.length] = line;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.omb.ocpp.gui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Searchable copy of console lines, confined to a single search thread.
+ * Every line is split to tokens (runs of letters and digits) and indexed by them. Plain text search takes candidate
+ * lines from the rarest token which the searched text surely contains as a whole token and verifies only them,
+ * regex search and texts without such token scan all lines.
+ */
+class ConsoleIndex {
+    private final ConsoleLine[] ring;
+    private final Map<String, IdList> postings = new HashMap<>();
+    private int head;
+    private int size;
+    private long evictedSinceRebuild;
+
+    ConsoleIndex(int capacity) {
+        this.ring = new ConsoleLine[capacity];
+    }
+
+    void add(List<ConsoleLine> newLines) {
+        for (ConsoleLine line : newLines) {
+            if (size == ring.length) {
+                head = (head + 1) % ring.length;
+                size--;
+                evictedSinceRebuild++;
+            }
+            ring[(head + size) % ring.length] = line;
+            size++;
+            index(line);
+        }
+        // postings of evicted lines are skipped on lookup and dropped once they could make up half of the index
+        if (evictedSinceRebuild > ring.length) {
+            postings.clear();
+            for (int i = 0; i < size; i++) {
+                index(get(i));
+            }
+            evictedSinceRebuild = 0;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(ring, null);
+        head = 0;
+        size = 0;
+        postings.clear();
+        evictedSinceRebuild = 0;
+    }
+
+    /**
+     * @param cancelled checked while searching, search returns null once it is true
+     */
+    HighlightMask search(HighlightQuery query, BooleanSupplier cancelled) {
+        if (query.isEmpty() || size == 0) {
+            return HighlightMask.EMPTY;
+        }
+        long firstId = get(0).getId();
+        BitSet bits = new BitSet();
+        List<ConsoleLine> candidates = query.getRegex() == null ? indexedCandidates(query.getText(), firstId) : null;
+        int count = candidates == null ? size : candidates.size();
+        for (int i = 0; i < count; i++) {
+            if (i % 1024 == 1023 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            ConsoleLine line = candidates == null ? get(i) : candidates.get(i);
+            if (query.matches(line.getText())) {
+                bits.set((int) (line.getId() - firstId));
+            }
+        }
+        return new HighlightMask(firstId, bits);
+    }
+
+    /**
+     * @return mask extended with given new lines which match the query, the same mask if none matches and no
+     * highlighted line was evicted
+     */
+    HighlightMask extend(HighlightMask mask, HighlightQuery query, List<ConsoleLine> newLines) {
+        if (query.isEmpty() || size == 0) {
+            return HighlightMask.EMPTY;
+        }
+        long firstId = get(0).getId();
+        List<Long> matched = new ArrayList<>();
+        for (ConsoleLine line : newLines) {
+            if (line.getId() >= firstId && query.matches(line.getText())) {
+                matched.add(line.getId());
+            }
+        }
+        return mask.extend(firstId, matched, ring.length);
+    }
+
+    /**
+     * @return lines which may contain the text, null if the index can't narrow the search
+     */
+    private List<ConsoleLine> indexedCandidates(String text, long firstId) {
+        IdList rarest = null;
+        for (String token : tokens(text, true)) {
+            IdList ids = postings.get(token);
+            if (ids == null) {
+                return List.of();
+            }
+            if (rarest == null || ids.size() < rarest.size()) {
+                rarest = ids;
+            }
+        }
+        if (rarest == null) {
+            return null;
+        }
+        List<ConsoleLine> candidates = new ArrayList<>();
+        for (long id : rarest.from(firstId)) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                candidates.add(get(index));
+            }
+        }
+        return candidates;
+    }
+
+    private int indexOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = get(middle).getId();
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private ConsoleLine get(int index) {
+        return ring[(head + index) % ring.length];
+    }
+
+    private void index(ConsoleLine line) {
+        for (String token : tokens(line.getText(), false)) {
+            postings.computeIfAbsent(token, key -> new IdList()).add(line.getId());
+        }
+    }
+
+    /**
+     * @param wholeOnly return only tokens bounded by other characters on both sides, for searched text the first
+     *                  and the last run may be a part of a longer token in the line
+     */
+    static List<String> tokens(String text, boolean wholeOnly) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                if (!wholeOnly || start > 0 && i < text.length()) {
+                    tokens.add(text.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Growing sorted list of line ids
+     */
+    private static class IdList {
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] from(long firstId) {
+            int index = Arrays.binarySearch(ids, 0, size, firstId);
+            return Arrays.copyOfRange(ids, index >= 0 ? index : -index - 1, size);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.omb.ocpp.gui;
+
+/**
+ * Line of console output, level is resolved once when the line is completed
+ */
+class ConsoleLine {
+    enum Level {
+        INFO, DEBUG, WARN, ERROR, OTHER
+    }
+
+    private final long id;
+    private final String text;
+    private final Level level;
+    private final boolean containsError;
+
+    ConsoleLine(long id, String text) {
+        this.id = id;
+        this.text = text;
+        this.level = levelOf(text);
+        this.containsError = text.contains("ERROR");
+    }
+
+    long getId() {
+        return id;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    Level getLevel() {
+        return level;
+    }
+
+    boolean containsError() {
+        return containsError;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    // same precedence the console always used for coloring
+    private static Level levelOf(String text) {
+        if (text.contains("INFO")) {
+            return Level.INFO;
+        } else if (text.contains("DEBUG")) {
+            return Level.DEBUG;
+        } else if (text.contains("WARN")) {
+            return Level.WARN;
+        } else if (text.contains("ERROR")) {
+            return Level.ERROR;
+        } else {
+            return Level.OTHER;
+        }
+    }
+}
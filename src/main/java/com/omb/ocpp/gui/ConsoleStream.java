@@ -1,149 +1,259 @@
 package com.omb.ocpp.gui;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TextField;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Text;
-import javafx.scene.text.TextFlow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedOutputStream;
 import java.io.FileDescriptor;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
+/**
+ * Console output shown in a virtualized list, only visible lines have nodes.
+ * Writers only append to {@link ConsoleBuffer}, the list is updated once per frame with everything written meanwhile.
+ * Highlight search runs on a background thread over {@link ConsoleIndex}, the list only looks up ids in the
+ * resulting {@link HighlightMask}.
+ */
 public class ConsoleStream extends OutputStream {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleStream.class);
     private static final Clipboard CLIPBOARD = Clipboard.getSystemClipboard();
-    private static final int MAX_CONSOLE_SIZE = 1000;
-    private final TextFlow textFlow;
+    private static final int MAX_CONSOLE_SIZE = 100_000;
+    private final ListView<ConsoleLine> listView;
     private final TextField textField;
-    private OutputStream fdOut = new FileOutputStream(FileDescriptor.out);
-    private PrintStream printStream = new PrintStream(new BufferedOutputStream(fdOut, 128), true);
-    private StringBuilder stringBuilder = new StringBuilder();
-    private String highlightString;
-    private Pattern highlightRegex;
+    private final ObservableList<ConsoleLine> lines = FXCollections.observableArrayList();
+    private final ConsoleBuffer buffer = new ConsoleBuffer(MAX_CONSOLE_SIZE);
+    private final OutputStream stdOut = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 8192);
+    private final byte[] singleByte = new byte[1];
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "console-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong searchGeneration = new AtomicLong();
+    // accessed only by the search thread
+    private final ConsoleIndex index = new ConsoleIndex(MAX_CONSOLE_SIZE);
+    private HighlightQuery searchQuery = HighlightQuery.EMPTY;
+    private HighlightMask searchMask = HighlightMask.EMPTY;
+    // accessed only by the FX thread
+    private HighlightQuery query = HighlightQuery.EMPTY;
+    private HighlightMask mask = HighlightMask.EMPTY;
     private Color highlightColor = Color.MAGENTA;
+    private final Set<ConsoleLineCell> cells = Collections.newSetFromMap(new WeakHashMap<>());
 
-    ConsoleStream(TextFlow textFlow, TextField textField) {
-        this.textFlow = textFlow;
+    ConsoleStream(ListView<ConsoleLine> listView, TextField textField) {
+        this.listView = listView;
         this.textField = textField;
+        listView.setItems(lines);
+        listView.setCellFactory(view -> {
+            ConsoleLineCell cell = new ConsoleLineCell();
+            cells.add(cell);
+            return cell;
+        });
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                appendPendingLines();
+            }
+        }.start();
     }
 
     @Override
-    public void write(int i) {
-        Platform.runLater(() -> {
-            printStream.print((char) i);
-            stringBuilder.append((char) i);
-            if (i == 10) {
-                String string = stringBuilder.toString();
-                stringBuilder = new StringBuilder();
-                Text text = new Text(string);
-                text.setFill(getColor(string));
-                if (string.contains("ERROR")) {
-                    text.setStyle("-fx-font-weight: bold");
-                }
-                text.setOnMouseClicked(event -> {
-                    ClipboardContent clipboardContent = new ClipboardContent();
-                    clipboardContent.putString(((Text) event.getSource()).getText());
-                    CLIPBOARD.setContent(clipboardContent);
-                    textField.setText(((Text) event.getSource()).getText());
-                });
-                textFlow.getChildren().add(text);
-                if (textFlow.getChildren().size() > MAX_CONSOLE_SIZE) {
-                    textFlow.getChildren().remove(0, MAX_CONSOLE_SIZE / 10);
+    public synchronized void write(int i) {
+        singleByte[0] = (byte) i;
+        write(singleByte, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        try {
+            stdOut.write(bytes, offset, length);
+            stdOut.flush();
+        } catch (IOException e) {
+            // standard output is gone, console view still works
+        }
+        buffer.append(bytes, offset, length);
+    }
+
+    void clear() {
+        buffer.drain();
+        lines.clear();
+        long generation = searchGeneration.incrementAndGet();
+        searchExecutor.execute(() -> {
+            index.clear();
+            searchMask = HighlightMask.EMPTY;
+            publish(generation, searchMask);
+        });
+    }
+
+    private void appendPendingLines() {
+        List<ConsoleLine> pending = buffer.drain();
+        if (pending.isEmpty()) {
+            return;
+        }
+        boolean followTail = isScrolledToEnd();
+        lines.addAll(pending);
+        if (lines.size() > MAX_CONSOLE_SIZE) {
+            lines.remove(0, lines.size() - MAX_CONSOLE_SIZE);
+        }
+        if (followTail) {
+            listView.scrollTo(lines.size() - 1);
+        }
+        long generation = searchGeneration.get();
+        searchExecutor.execute(() -> {
+            index.add(pending);
+            if (!searchQuery.isEmpty()) {
+                HighlightMask extended = index.extend(searchMask, searchQuery, pending);
+                if (extended != searchMask) {
+                    searchMask = extended;
+                    publish(generation, extended);
                 }
             }
         });
     }
 
-    private Color getColor(String string) {
-        if (highlightRegex != null && highlightRegex.matcher(string).find()) {
-            return highlightColor;
-        } else if (highlightString != null && !highlightString.isEmpty() && string.contains(highlightString)) {
+    private boolean isScrolledToEnd() {
+        for (Node node : listView.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                ScrollBar scrollBar = (ScrollBar) node;
+                return !scrollBar.isVisible() || scrollBar.getValue() >= scrollBar.getMax();
+            }
+        }
+        return true;
+    }
+
+    private Color getColor(ConsoleLine line) {
+        if (mask.contains(line.getId())) {
             return highlightColor;
-        } else if (string.contains("INFO")) {
-            return Color.GREEN;
-        } else if (string.contains("DEBUG")) {
-            return Color.BLACK;
-        } else if (string.contains("WARN")) {
-            return Color.ORANGE;
-        } else if (string.contains("ERROR")) {
-            return Color.RED;
-        } else {
-            return Color.GRAY;
+        }
+        switch (line.getLevel()) {
+            case INFO:
+                return Color.GREEN;
+            case DEBUG:
+                return Color.BLACK;
+            case WARN:
+                return Color.ORANGE;
+            case ERROR:
+                return Color.RED;
+            default:
+                return Color.GRAY;
         }
     }
 
     void markLines(String key, boolean regex) {
         if (key == null || key.isEmpty()) {
-            clearMarkup();
+            search(HighlightQuery.EMPTY);
         } else if (regex) {
             markLinesRegex(key);
         } else {
-            markLines(key);
+            search(query.withText(key));
         }
     }
 
-    private void markLines(String key) {
-        highlightString = key;
-        textFlow.getChildren()
-                .stream()
-                .filter(node -> node instanceof Text)
-                .forEach(node -> {
-                    if (((Text) node).getText().contains(key)) {
-                        ((Text) node).setFill(highlightColor);
-                    } else {
-                        ((Text) node).setFill(getColor(((Text) node).getText()));
-                    }
-                });
-    }
-
     private void markLinesRegex(String key) {
+        Pattern pattern;
         try {
-            highlightRegex = Pattern.compile(key);
-            textFlow.getChildren()
-                    .stream()
-                    .filter(node -> node instanceof Text)
-                    .forEach(node -> {
-                        if (highlightRegex.matcher(((Text) node).getText()).find()) {
-                            ((Text) node).setFill(highlightColor);
-                        } else {
-                            ((Text) node).setFill(getColor(((Text) node).getText()));
-                        }
-                    });
+            pattern = Pattern.compile(key);
         } catch (PatternSyntaxException e) {
             LOGGER.error("Wrong regex", e);
-            highlightRegex = null;
+            pattern = null;
         }
+        search(query.withRegex(pattern));
     }
 
-    private void clearMarkup() {
-        highlightString = null;
-        highlightRegex = null;
-        textFlow.getChildren()
-                .stream()
-                .filter(node -> node instanceof Text && ((Text) node).getFill().equals(highlightColor))
-                .forEach(node -> ((Text) node).setFill(getColor(((Text) node).getText())));
+    /**
+     * Replaces highlight query, a search still running for the previous query is cancelled
+     */
+    private void search(HighlightQuery newQuery) {
+        query = newQuery;
+        long generation = searchGeneration.incrementAndGet();
+        searchExecutor.execute(() -> {
+            searchQuery = newQuery;
+            HighlightMask found = index.search(newQuery, () -> searchGeneration.get() != generation);
+            if (found != null) {
+                searchMask = found;
+                publish(generation, found);
+            }
+        });
+    }
+
+    /**
+     * Only existing cells, about as many as visible lines, re-read the mask, cells created later read it anyway
+     */
+    private void publish(long generation, HighlightMask found) {
+        Platform.runLater(() -> {
+            if (searchGeneration.get() == generation && mask != found) {
+                mask = found;
+                cells.forEach(ConsoleLineCell::updateColor);
+            }
+        });
     }
 
-    public void copySelected(){
-        String copiedText = textFlow.getChildren()
-                .stream()
-                .filter(node -> node instanceof Text && ((Text) node).getFill().equals(highlightColor))
-                .map(node -> ((Text) node).getText())
+    public void copySelected() {
+        HighlightMask copiedMask = mask;
+        String copiedText = lines.stream()
+                .filter(line -> copiedMask.contains(line.getId()))
+                .map(line -> line.getText() + "\n")
                 .collect(Collectors.joining());
 
-        final Clipboard clipboard = Clipboard.getSystemClipboard();
         final ClipboardContent content = new ClipboardContent();
         content.putString(copiedText);
-        clipboard.setContent(content);
+        CLIPBOARD.setContent(content);
+    }
+
+    private class ConsoleLineCell extends ListCell<ConsoleLine> {
+        ConsoleLineCell() {
+            setOnMouseClicked(event -> {
+                if (isEmpty() || getItem() == null) {
+                    return;
+                }
+                ClipboardContent clipboardContent = new ClipboardContent();
+                clipboardContent.putString(getItem().getText());
+                CLIPBOARD.setContent(clipboardContent);
+                textField.setText(getItem().getText());
+            });
+        }
+
+        @Override
+        protected void updateItem(ConsoleLine line, boolean empty) {
+            super.updateItem(line, empty);
+            if (empty || line == null) {
+                setText(null);
+                setStyle(null);
+                return;
+            }
+            setText(line.getText());
+            setTextFill(getColor(line));
+            setStyle(line.containsError() ? "-fx-font-weight: bold" : null);
+        }
+
+        void updateColor() {
+            if (!isEmpty() && getItem() != null) {
+                setTextFill(getColor(getItem()));
+            }
+        }
     }
 }
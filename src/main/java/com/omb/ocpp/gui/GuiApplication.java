@@ -7,7 +7,7 @@ import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.TabPane;
 import javafx.scene.control.TextField;
@@ -18,7 +18,6 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
-import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
 import org.glassfish.hk2.api.ServiceLocator;
 import org.slf4j.Logger;
@@ -54,16 +53,14 @@ public class GuiApplication extends javafx.application.Application {
         splitPane.prefWidthProperty().bind(scene.widthProperty());
 
         TextField selectedLine = new TextField();
-        TextFlow textFlow = new TextFlow();
-        ConsoleStream console = new ConsoleStream(textFlow, selectedLine);
+        ListView<ConsoleLine> consoleView = new ListView<>();
+        ConsoleStream console = new ConsoleStream(consoleView, selectedLine);
         PrintStream ps = new PrintStream(console, true);
         System.setOut(ps);
         System.setErr(ps);
 
-        ScrollPane scrollPane = new ScrollPane();
-        scrollPane.setContent(textFlow);
-        scrollPane.prefViewportHeightProperty().bind(scene.heightProperty());
-        scrollPane.setStyle("-fx-border-width: 0 0 2 0; -fx-border-color : black;");
+        consoleView.prefHeightProperty().bind(scene.heightProperty());
+        consoleView.setStyle("-fx-border-width: 0 0 2 0; -fx-border-color : black;");
 
         TabPane tabPane = new TabPane();
         tabPane.getTabs().add(new GeneralTab(applicationContext).constructTab(splitPane));
@@ -73,7 +70,7 @@ public class GuiApplication extends javafx.application.Application {
         tabPane.getTabs().add(new SslClientTab(applicationContext).constructTab(primaryStage));
 
         Button clearButton = new Button("Clear");
-        clearButton.setOnAction(event -> textFlow.getChildren().clear());
+        clearButton.setOnAction(event -> console.clear());
         clearButton.setPrefWidth(100);
         clearButton.setMinWidth(100);
 
@@ -102,7 +99,7 @@ public class GuiApplication extends javafx.application.Application {
         HBox.setHgrow(leftVBox, Priority.ALWAYS);
         hBox.setBackground(new Background(new BackgroundFill(Color.LIGHTGREY, null, null)));
 
-        leftVBox.getChildren().addAll(selectedLine, scrollPane);
+        leftVBox.getChildren().addAll(selectedLine, consoleView);
         rightVBox.getChildren().addAll(clearButton, markerWord, markerRegex, highlightButton, copyButton);
         hBox.getChildren().addAll(leftVBox, rightVBox);
 
@@ -0,0 +1,57 @@
+package com.omb.ocpp.gui;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable set of highlighted console line ids, bit i stands for line with id firstId + i
+ */
+class HighlightMask {
+    static final HighlightMask EMPTY = new HighlightMask(0, new BitSet());
+
+    private final long firstId;
+    private final BitSet bits;
+
+    HighlightMask(long firstId, BitSet bits) {
+        this.firstId = firstId;
+        this.bits = bits;
+    }
+
+    boolean contains(long id) {
+        long offset = id - firstId;
+        return offset >= 0 && offset < Integer.MAX_VALUE && bits.get((int) offset);
+    }
+
+    boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    /**
+     * Keeps the base id, so only bits of added ids are set and bits below newFirstId cleared, the bits are shifted to
+     * newFirstId only once the base is more than rebaseDistance ids behind
+     *
+     * @param newFirstId  lower ids are dropped
+     * @param addedIds    ids to add, not lower than newFirstId
+     * @return extended mask, or this mask if nothing changed
+     */
+    HighlightMask extend(long newFirstId, List<Long> addedIds, int rebaseDistance) {
+        long base = bits.isEmpty() ? newFirstId : firstId;
+        int dropped = (int) Math.min(Math.max(0, newFirstId - base), Integer.MAX_VALUE);
+        int firstSet = bits.nextSetBit(0);
+        if (addedIds.isEmpty() && (firstSet < 0 || firstSet >= dropped)) {
+            return this;
+        }
+        BitSet extended;
+        if (base == firstId && dropped <= rebaseDistance) {
+            extended = (BitSet) bits.clone();
+            extended.clear(0, dropped);
+        } else {
+            extended = base == firstId ? bits.get(dropped, Math.max(dropped, bits.length())) : new BitSet();
+            base = newFirstId;
+        }
+        for (long id : addedIds) {
+            extended.set((int) (id - base));
+        }
+        return new HighlightMask(base, extended);
+    }
+}
@@ -0,0 +1,42 @@
+package com.omb.ocpp.gui;
+
+import java.util.regex.Pattern;
+
+/**
+ * Highlight criteria, a line matches if it contains the text or the regex finds a match in it
+ */
+class HighlightQuery {
+    static final HighlightQuery EMPTY = new HighlightQuery(null, null);
+
+    private final String text;
+    private final Pattern regex;
+
+    HighlightQuery(String text, Pattern regex) {
+        this.text = text == null || text.isEmpty() ? null : text;
+        this.regex = regex;
+    }
+
+    HighlightQuery withText(String text) {
+        return new HighlightQuery(text, regex);
+    }
+
+    HighlightQuery withRegex(Pattern regex) {
+        return new HighlightQuery(text, regex);
+    }
+
+    String getText() {
+        return text;
+    }
+
+    Pattern getRegex() {
+        return regex;
+    }
+
+    boolean isEmpty() {
+        return text == null && regex == null;
+    }
+
+    boolean matches(String line) {
+        return regex != null && regex.matcher(line).find() || text != null && line.contains(text);
+    }
+}
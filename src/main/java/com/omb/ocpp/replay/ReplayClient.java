@@ -0,0 +1,170 @@
+package com.omb.ocpp.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulated charge point speaking OCPP-J 1.6. Requests sent by the server are answered with NotImplemented error.
+ * Runs on the executor of the shared {@link HttpClient}, a client has no threads of its own.
+ */
+class ReplayClient implements WebSocket.Listener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayClient.class);
+    private static final String OCPP_PROTOCOL = "ocpp1.6";
+    private static final int CALL = 2;
+    private static final int CALL_RESULT = 3;
+    private static final int CALL_ERROR = 4;
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final URI uri;
+    private final Gson gson = new Gson();
+    private final Map<String, CompletableFuture<Boolean>> pendingCalls = new ConcurrentHashMap<>();
+    private final AtomicLong nextMessageId = new AtomicLong();
+    private final StringBuilder partialMessage = new StringBuilder();
+    private volatile WebSocket webSocket;
+    // WebSocket allows one outstanding send, guarded by this
+    private CompletableFuture<WebSocket> lastSend = CompletableFuture.completedFuture(null);
+
+    private ReplayClient(URI uri) {
+        this.uri = uri;
+    }
+
+    static CompletableFuture<ReplayClient> connect(HttpClient httpClient, URI uri, Duration timeout) {
+        ReplayClient client = new ReplayClient(uri);
+        return httpClient.newWebSocketBuilder()
+                .subprotocols(OCPP_PROTOCOL)
+                .connectTimeout(timeout)
+                .buildAsync(uri, client)
+                .thenApply(webSocket -> {
+                    client.webSocket = webSocket;
+                    return client;
+                });
+    }
+
+    /**
+     * @return stage completed with true on call result, false on call error, complete or cancel it to stop waiting
+     * for the response
+     */
+    CompletableFuture<Boolean> call(String action, String payload) {
+        String messageId = Long.toString(nextMessageId.incrementAndGet());
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        pendingCalls.put(messageId, result);
+        result.whenComplete((answered, e) -> pendingCalls.remove(messageId, result));
+        send(String.format("[%d,%s,%s,%s]", CALL, gson.toJson(messageId), gson.toJson(action), payload))
+                .whenComplete((sent, e) -> {
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    }
+                });
+        return result;
+    }
+
+    void close() {
+        WebSocket current = webSocket;
+        if (current != null) {
+            send(null).whenComplete((sent, e) -> current.sendClose(WebSocket.NORMAL_CLOSURE, "")
+                    .orTimeout(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .whenComplete((closed, closeError) -> current.abort()));
+        }
+    }
+
+    /**
+     * @param text null only waits for previous sends
+     */
+    private synchronized CompletableFuture<WebSocket> send(String text) {
+        lastSend = lastSend.handle((previous, e) -> null)
+                .thenCompose(previous -> text == null ? CompletableFuture.completedFuture(webSocket)
+                        : webSocket.sendText(text, true));
+        return lastSend;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        this.webSocket = webSocket;
+        LOGGER.debug("{} connected", uri);
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partialMessage.append(data);
+        if (last) {
+            String message = partialMessage.toString();
+            partialMessage.setLength(0);
+            onMessage(message);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    private void onMessage(String message) {
+        JsonArray frame;
+        try {
+            frame = gson.fromJson(message, JsonArray.class);
+        } catch (JsonSyntaxException e) {
+            frame = null;
+        }
+        if (!isValidFrame(frame)) {
+            LOGGER.warn("{} received malformed message {}", uri, message);
+            return;
+        }
+        int messageType = frame.get(0).getAsInt();
+        String messageId = frame.get(1).getAsString();
+        if (messageType == CALL) {
+            send(String.format("[%d,%s,\"NotImplemented\",\"Replay client does not answer requests\",{}]",
+                    CALL_ERROR, gson.toJson(messageId)));
+            return;
+        }
+        CompletableFuture<Boolean> result = pendingCalls.remove(messageId);
+        if (result != null) {
+            result.complete(messageType == CALL_RESULT);
+        }
+    }
+
+    /**
+     * @return true for an array starting with a known message type and a string message id
+     */
+    private static boolean isValidFrame(JsonArray frame) {
+        if (frame == null || frame.size() < 3 || !isPrimitive(frame.get(0)) || !isPrimitive(frame.get(1))
+                || !frame.get(0).getAsJsonPrimitive().isNumber() || !frame.get(1).getAsJsonPrimitive().isString()) {
+            return false;
+        }
+        int messageType = frame.get(0).getAsInt();
+        return messageType == CALL || messageType == CALL_RESULT || messageType == CALL_ERROR;
+    }
+
+    private static boolean isPrimitive(JsonElement element) {
+        return element != null && element.isJsonPrimitive();
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        failPendingCalls(new IllegalStateException(String.format("Connection closed %d %s", statusCode, reason)));
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        LOGGER.debug(String.format("%s connection error", uri), error);
+        failPendingCalls(error);
+    }
+
+    private void failPendingCalls(Throwable cause) {
+        pendingCalls.values().forEach(result -> result.completeExceptionally(cause));
+        pendingCalls.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package com.omb.ocpp.replay;
+
+/**
+ * Request sent by a charge point, as recorded
+ */
+class ReplayMessage {
+    private final String identifier;
+    private final long timestamp;
+    private final String action;
+    private final String payload;
+
+    ReplayMessage(String identifier, long timestamp, String action, String payload) {
+        this.identifier = identifier;
+        this.timestamp = timestamp;
+        this.action = action;
+        this.payload = payload;
+    }
+
+    /**
+     * @return charge point name used in the connection url
+     */
+    String getIdentifier() {
+        return identifier;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    String getAction() {
+        return action;
+    }
+
+    String getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,105 @@
+package com.omb.ocpp.replay;
+
+/**
+ * Outcome of a replay, latencies are client round-trip times in milliseconds, measured by the simulated charge point
+ * from sending a request until its response arrived, they include network and queuing besides handler time
+ */
+public class ReplayReport {
+    private final int chargePoints;
+    private final int failedConnections;
+    private final long answered;
+    private final long errors;
+    private final long failed;
+    private final double durationSeconds;
+    private final double throughput;
+    private final double averageLatency;
+    private final double p50Latency;
+    private final double p90Latency;
+    private final double p99Latency;
+    private final double maxLatency;
+
+    ReplayReport(int chargePoints, int failedConnections, long answered, long errors, long failed,
+                 double durationSeconds, double averageLatency, double p50Latency, double p90Latency,
+                 double p99Latency, double maxLatency) {
+        this.chargePoints = chargePoints;
+        this.failedConnections = failedConnections;
+        this.answered = answered;
+        this.errors = errors;
+        this.failed = failed;
+        this.durationSeconds = durationSeconds;
+        this.throughput = durationSeconds > 0 ? answered / durationSeconds : 0;
+        this.averageLatency = averageLatency;
+        this.p50Latency = p50Latency;
+        this.p90Latency = p90Latency;
+        this.p99Latency = p99Latency;
+        this.maxLatency = maxLatency;
+    }
+
+    public int getChargePoints() {
+        return chargePoints;
+    }
+
+    public int getFailedConnections() {
+        return failedConnections;
+    }
+
+    /**
+     * @return requests which got a response, including call errors
+     */
+    public long getAnswered() {
+        return answered;
+    }
+
+    /**
+     * @return requests answered with call error
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return requests which could not be sent or got no response in time
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * @return answered requests per second
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getAverageLatency() {
+        return averageLatency;
+    }
+
+    public double getP50Latency() {
+        return p50Latency;
+    }
+
+    public double getP90Latency() {
+        return p90Latency;
+    }
+
+    public double getP99Latency() {
+        return p99Latency;
+    }
+
+    public double getMaxLatency() {
+        return maxLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Replayed %d charge points (%d could not connect) in %.1f s: %d answered (%d errors), " +
+                        "%d failed, %.1f requests/s, round-trip ms avg %.2f p50 %.2f p90 %.2f p99 %.2f max %.2f",
+                chargePoints, failedConnections, durationSeconds, answered, errors, failed, throughput,
+                averageLatency, p50Latency, p90Latency, p99Latency, maxLatency);
+    }
+}
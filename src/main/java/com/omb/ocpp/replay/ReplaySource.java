@@ -0,0 +1,103 @@
+package com.omb.ocpp.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.omb.ocpp.server.journal.JournalEntry;
+import com.omb.ocpp.server.journal.JournalReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Loads requests sent by charge points, grouped by charge point and ordered by time.
+ * Requests sent by the server are skipped, simulated charge points only answer them.
+ */
+class ReplaySource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplaySource.class);
+    private static final String REPLAY_IDENTIFIER_PREFIX = "replay-";
+
+    private ReplaySource() {
+    }
+
+    /**
+     * Journal does not keep charge point names, every recorded session becomes a charge point "replay-N"
+     */
+    static Map<String, List<ReplayMessage>> fromJournal(JournalReader journal) throws IOException {
+        Map<UUID, String> identifiers = new HashMap<>();
+        Map<String, List<ReplayMessage>> messages = new LinkedHashMap<>();
+        journal.forEach(entry -> {
+            if (entry.getDirection() != JournalEntry.Direction.RECEIVED) {
+                return;
+            }
+            String identifier = identifiers.computeIfAbsent(entry.getSessionUuid(),
+                    uuid -> REPLAY_IDENTIFIER_PREFIX + (identifiers.size() + 1));
+            messages.computeIfAbsent(identifier, key -> new ArrayList<>())
+                    .add(new ReplayMessage(identifier, entry.getTimestamp(), entry.getAction(), entry.getPayload()));
+        });
+        return sorted(messages);
+    }
+
+    /**
+     * Reads one JSON object per line, in the shape returned by get-journal-entries: timestamp (epoch millis),
+     * identifier or sessionUuid, action, payload (object or string) and optional direction
+     */
+    static Map<String, List<ReplayMessage>> fromJsonLines(Path path) throws IOException {
+        Gson gson = new Gson();
+        Map<String, String> identifiers = new HashMap<>();
+        Map<String, List<ReplayMessage>> messages = new LinkedHashMap<>();
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonObject json = gson.fromJson(line, JsonObject.class);
+                    if (!isReplayed(json)) {
+                        LOGGER.debug("Skipping line {} of {}", lineNumber, path);
+                        continue;
+                    }
+                    String identifier = json.has("identifier") ? json.get("identifier").getAsString()
+                            : identifiers.computeIfAbsent(json.get("sessionUuid").getAsString(),
+                            uuid -> REPLAY_IDENTIFIER_PREFIX + (identifiers.size() + 1));
+                    JsonElement payload = json.get("payload");
+                    messages.computeIfAbsent(identifier, key -> new ArrayList<>())
+                            .add(new ReplayMessage(identifier, json.get("timestamp").getAsLong(),
+                                    json.get("action").getAsString(),
+                                    payload.isJsonPrimitive() ? payload.getAsString() : payload.toString()));
+                } catch (JsonSyntaxException | IllegalStateException | UnsupportedOperationException
+                        | NumberFormatException e) {
+                    LOGGER.warn("Skipping malformed line {} of {}: {}", lineNumber, path, e.getMessage());
+                }
+            }
+        }
+        return sorted(messages);
+    }
+
+    private static boolean isReplayed(JsonObject json) {
+        return json != null && json.has("timestamp") && json.has("action") && json.has("payload")
+                && (json.has("identifier") || json.has("sessionUuid"))
+                && (!json.has("direction") || JournalEntry.Direction.RECEIVED.name().equals(json.get("direction").getAsString()));
+    }
+
+    private static Map<String, List<ReplayMessage>> sorted(Map<String, List<ReplayMessage>> messages) {
+        messages.values().forEach(list -> list.sort(Comparator.comparingLong(ReplayMessage::getTimestamp)));
+        return messages;
+    }
+}
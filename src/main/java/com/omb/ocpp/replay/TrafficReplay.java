@@ -0,0 +1,279 @@
+package com.omb.ocpp.replay;
+
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
+import com.omb.ocpp.groovy.GroovyService;
+import com.omb.ocpp.gui.Application;
+import com.omb.ocpp.server.OcppServerService;
+import com.omb.ocpp.server.journal.JournalReader;
+import com.omb.ocpp.server.journal.MessageJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays recorded charge point traffic with many simulated charge points, one connection each. All charge points
+ * share a small pool of threads, so the number of simulated charge points is limited by connections, not threads.
+ * Every charge point sends its requests one at a time, at the recorded moment divided by the speed factor or, when it
+ * is later, as soon as the previous request is answered.
+ * <p>
+ * Usage: TrafficReplay &lt;journal|file.jsonl&gt; [1x|10x|max] [ws://host:port], without url a local OCPP server is
+ * started on 'ocpp.server.port'
+ */
+public class TrafficReplay {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficReplay.class);
+    private static final String JOURNAL_SOURCE = "journal";
+    private static final long RESPONSE_TIMEOUT_SECONDS = 30;
+    private static final int CONNECT_ATTEMPTS = 10;
+    private static final long CONNECT_RETRY_MILLIS = 500;
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final URI serverUri;
+    private final double speed;
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final AtomicInteger failedConnections = new AtomicInteger();
+
+    /**
+     * @param speed recorded time is divided by it, 0 - no waiting between requests
+     */
+    public TrafficReplay(URI serverUri, double speed) {
+        this.serverUri = serverUri;
+        this.speed = speed;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            LOGGER.error("Usage: TrafficReplay <journal|file.jsonl> [1x|10x|max] [ws://host:port]");
+            System.exit(1);
+        }
+        // replayed traffic must not be journaled, a server may be appending to the journal of the same home
+        System.setProperty(MessageJournal.DISABLED_PROPERTY, "true");
+        OcppServerService ocppServerService = null;
+        int exitCode = 0;
+        try {
+            Map<String, List<ReplayMessage>> messages = JOURNAL_SOURCE.equals(args[0])
+                    ? ReplaySource.fromJournal(new JournalReader(journalFolder()))
+                    : ReplaySource.fromJsonLines(Paths.get(args[0]));
+            double speed = parseSpeed(args.length > 1 ? args[1] : "1x");
+            URI serverUri;
+            if (args.length > 2) {
+                serverUri = URI.create(args[2]);
+            } else {
+                int port = Application.APPLICATION.getService(Config.class).getInt(ConfigKey.OCPP_SERVER_PORT);
+                Application.APPLICATION.getService(GroovyService.class).loadGroovyScripts();
+                ocppServerService = Application.APPLICATION.getService(OcppServerService.class);
+                ocppServerService.start("127.0.0.1", port);
+                serverUri = URI.create("ws://127.0.0.1:" + port);
+            }
+            ReplayReport report = new TrafficReplay(serverUri, speed).replay(messages);
+            LOGGER.info("{}", report);
+        } catch (Exception e) {
+            LOGGER.error("Replay failed", e);
+            exitCode = 1;
+        } finally {
+            if (ocppServerService != null) {
+                ocppServerService.stop();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Resolved without {@link Application}, reading the journal must not start application services
+     */
+    private static Path journalFolder() {
+        String home = System.getenv("OCPP_SERVER_HOME");
+        if (home == null) {
+            throw new IllegalStateException("Please define OCPP_SERVER_HOME environment variable");
+        }
+        return Paths.get(home, MessageJournal.JOURNAL_FOLDER_NAME);
+    }
+
+    /**
+     * @param speed "1x", "10x" or any other factor with "x", "max" for no waiting
+     */
+    static double parseSpeed(String speed) {
+        if ("max".equalsIgnoreCase(speed)) {
+            return 0;
+        }
+        String factor = speed.endsWith("x") ? speed.substring(0, speed.length() - 1) : speed;
+        double value = Double.parseDouble(factor);
+        if (value <= 0) {
+            throw new IllegalArgumentException(String.format("Speed must be positive or 'max': %s", speed));
+        }
+        return value;
+    }
+
+    /**
+     * Blocks until every charge point sent all its requests
+     */
+    public ReplayReport replay(Map<String, List<ReplayMessage>> messagesByChargePoint) throws InterruptedException {
+        long firstTimestamp = messagesByChargePoint.values().stream()
+                .filter(messages -> !messages.isEmpty())
+                .mapToLong(messages -> messages.get(0).getTimestamp())
+                .min()
+                .orElse(0);
+        LOGGER.info("Replaying {} requests of {} charge points to {} with {} threads",
+                messagesByChargePoint.values().stream().mapToInt(List::size).sum(), messagesByChargePoint.size(),
+                serverUri, THREADS);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "replay-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpClient httpClient = HttpClient.newBuilder().executor(scheduler).build();
+        CountDownLatch finished = new CountDownLatch(messagesByChargePoint.size());
+        long startNanos = System.nanoTime();
+        try {
+            messagesByChargePoint.forEach((identifier, messages) -> new ChargePointReplay(identifier, messages,
+                    firstTimestamp, startNanos, httpClient, scheduler, finished).connect(1));
+            finished.await();
+        } finally {
+            scheduler.shutdownNow();
+        }
+        return latencies.report(messagesByChargePoint.size(), failedConnections.get(),
+                (System.nanoTime() - startNanos) / 1_000_000_000d);
+    }
+
+    /**
+     * Requests of one charge point, every step is a task on the shared scheduler so no thread waits for a
+     * response or for the recorded moment
+     */
+    private class ChargePointReplay {
+        private final String identifier;
+        private final List<ReplayMessage> messages;
+        private final long firstTimestamp;
+        private final long startNanos;
+        private final HttpClient httpClient;
+        private final ScheduledExecutorService scheduler;
+        private final CountDownLatch finished;
+        private ReplayClient client;
+        private int next;
+
+        ChargePointReplay(String identifier, List<ReplayMessage> messages, long firstTimestamp, long startNanos,
+                          HttpClient httpClient, ScheduledExecutorService scheduler, CountDownLatch finished) {
+            this.identifier = identifier;
+            this.messages = messages;
+            this.firstTimestamp = firstTimestamp;
+            this.startNanos = startNanos;
+            this.httpClient = httpClient;
+            this.scheduler = scheduler;
+            this.finished = finished;
+        }
+
+        /**
+         * Connecting is retried because server may limit handshake rate
+         */
+        void connect(int attempt) {
+            ReplayClient.connect(httpClient, serverUri.resolve("/" + identifier),
+                    Duration.ofSeconds(RESPONSE_TIMEOUT_SECONDS))
+                    .whenCompleteAsync((connected, e) -> {
+                        if (e == null) {
+                            client = connected;
+                            sendNext();
+                        } else if (attempt < CONNECT_ATTEMPTS) {
+                            LOGGER.debug(String.format("%s could not connect, attempt %d", identifier, attempt), e);
+                            scheduler.schedule(() -> connect(attempt + 1), CONNECT_RETRY_MILLIS * attempt,
+                                    TimeUnit.MILLISECONDS);
+                        } else {
+                            LOGGER.warn("{} could not connect to {}", identifier, serverUri);
+                            failedConnections.incrementAndGet();
+                            latencies.recordFailed(messages.size());
+                            finished.countDown();
+                        }
+                    }, scheduler);
+        }
+
+        private void sendNext() {
+            if (next == messages.size()) {
+                client.close();
+                finished.countDown();
+                return;
+            }
+            ReplayMessage message = messages.get(next++);
+            long waitNanos = 0;
+            if (speed > 0) {
+                long dueNanos = startNanos
+                        + (long) (TimeUnit.MILLISECONDS.toNanos(message.getTimestamp() - firstTimestamp) / speed);
+                waitNanos = dueNanos - System.nanoTime();
+            }
+            if (waitNanos > 0) {
+                scheduler.schedule(() -> send(message), waitNanos, TimeUnit.NANOSECONDS);
+            } else {
+                send(message);
+            }
+        }
+
+        private void send(ReplayMessage message) {
+            long sentNanos = System.nanoTime();
+            client.call(message.getAction(), message.getPayload())
+                    .orTimeout(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .whenCompleteAsync((result, e) -> {
+                        if (e == null) {
+                            latencies.record(System.nanoTime() - sentNanos, !result);
+                        } else {
+                            LOGGER.debug(String.format("%s of %s failed", message.getAction(), identifier), e);
+                            latencies.recordFailed(1);
+                        }
+                        sendNext();
+                    }, scheduler);
+        }
+    }
+
+    private static class LatencyRecorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private long failed;
+
+        synchronized void record(long latencyNanos, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (error) {
+                errors++;
+            }
+        }
+
+        synchronized void recordFailed(int requests) {
+            failed += requests;
+        }
+
+        synchronized ReplayReport report(int chargePoints, int failedConnections, double durationSeconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new ReplayReport(chargePoints, failedConnections, count, errors, failed, durationSeconds,
+                    toMillis(sorted.length == 0 ? 0 : Arrays.stream(sorted).sum() / sorted.length),
+                    toMillis(percentile(sorted, 50)), toMillis(percentile(sorted, 90)),
+                    toMillis(percentile(sorted, 99)), toMillis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+        }
+
+        private static long percentile(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1_000_000d;
+        }
+    }
+}
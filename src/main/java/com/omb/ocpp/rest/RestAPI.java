@@ -2,12 +2,22 @@ package com.omb.ocpp.rest;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
 import com.omb.ocpp.groovy.GroovyService;
 import com.omb.ocpp.gui.Application;
+import com.omb.ocpp.security.TlsSessionMetrics;
 import com.omb.ocpp.security.certificate.api.KeystoreApi;
 import com.omb.ocpp.security.certificate.config.KeystoreCertificateConfig;
 import com.omb.ocpp.security.certificate.service.TrustStoreService;
 import com.omb.ocpp.server.OcppServerService;
+import com.omb.ocpp.server.SessionRegistry;
+import com.omb.ocpp.server.admission.HandshakeAdmissionController;
+import com.omb.ocpp.server.auth.ChargePointPassword;
+import com.omb.ocpp.server.auth.CredentialStore;
+import com.omb.ocpp.server.broadcast.BroadcastService;
+import com.omb.ocpp.server.journal.MessageJournal;
+import com.omb.ocpp.server.trace.MessageTracer;
 import com.omb.ocpp.server.iso15118.dto.InstallCertificateRequest;
 import com.omb.ocpp.server.iso15118.dto.SignedUpdateFirmwareRequest;
 import eu.chargetime.ocpp.NotConnectedException;
@@ -15,6 +25,7 @@ import eu.chargetime.ocpp.OccurenceConstraintException;
 import eu.chargetime.ocpp.UnsupportedFeatureException;
 import eu.chargetime.ocpp.model.Confirmation;
 import eu.chargetime.ocpp.model.Request;
+import eu.chargetime.ocpp.model.SessionInformation;
 import eu.chargetime.ocpp.model.core.ChangeAvailabilityRequest;
 import eu.chargetime.ocpp.model.core.ChangeConfigurationRequest;
 import eu.chargetime.ocpp.model.core.ClearCacheRequest;
@@ -37,23 +48,37 @@ import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 @Path("/")
 @Produces(MediaType.APPLICATION_JSON)
@@ -61,9 +86,18 @@ import java.util.concurrent.ExecutionException;
 public class RestAPI {
     private static final Logger LOGGER = LoggerFactory.getLogger(RestAPI.class);
     private final OcppServerService ocppServerService = Application.APPLICATION.getService(OcppServerService.class);
+    private final SessionRegistry sessionRegistry = Application.APPLICATION.getService(SessionRegistry.class);
+    private final BroadcastService broadcastService = Application.APPLICATION.getService(BroadcastService.class);
+    private final MessageTracer messageTracer = Application.APPLICATION.getService(MessageTracer.class);
+    private final MessageJournal messageJournal = Application.APPLICATION.getService(MessageJournal.class);
+    private final HandshakeAdmissionController admissionController =
+            Application.APPLICATION.getService(HandshakeAdmissionController.class);
+    private final TlsSessionMetrics tlsSessionMetrics = Application.APPLICATION.getService(TlsSessionMetrics.class);
+    private final CredentialStore credentialStore = Application.APPLICATION.getService(CredentialStore.class);
     private final GroovyService groovyService = Application.APPLICATION.getService(GroovyService.class);
     private final KeystoreApi keystoreApi = Application.APPLICATION.getService(KeystoreApi.class);
     private final TrustStoreService trustStoreService = Application.APPLICATION.getService(TrustStoreService.class);
+    private final Config config = Application.APPLICATION.getService(Config.class);
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
 
@@ -172,99 +206,290 @@ public class RestAPI {
 
     @POST
     @Path("send-all-reset-request")
-    public Response sendAllResetRequest(ResetRequest resetRequest) {
-        return sendRequestToAll(resetRequest);
+    public void sendAllResetRequest(ResetRequest resetRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(resetRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-get-diagnostics")
-    public Response sendToAllGetDiagnostics(GetDiagnosticsRequest getDiagnosticsRequest) {
-        return sendRequestToAll(getDiagnosticsRequest);
+    public void sendToAllGetDiagnostics(GetDiagnosticsRequest getDiagnosticsRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(getDiagnosticsRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-change-availability-request")
-    public Response sendToAllChangeAvailabilityRequest(ChangeAvailabilityRequest changeAvailabilityRequest) {
-        return sendRequestToAll(changeAvailabilityRequest);
+    public void sendToAllChangeAvailabilityRequest(ChangeAvailabilityRequest changeAvailabilityRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(changeAvailabilityRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-change-configuration-request")
-    public Response sendToAllChangeConfigurationRequest(ChangeConfigurationRequest changeConfigurationRequest) {
-        return sendRequestToAll(changeConfigurationRequest);
+    public void sendToAllChangeConfigurationRequest(ChangeConfigurationRequest changeConfigurationRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(changeConfigurationRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-clear-cache-request")
-    public Response sendToAllClearCacheRequest(ClearCacheRequest clearCacheRequest) {
-        return sendRequestToAll(clearCacheRequest);
+    public void sendToAllClearCacheRequest(ClearCacheRequest clearCacheRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(clearCacheRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-data-transfer-request")
-    public Response sendToAllDataTransferRequest(DataTransferRequest dataTransferRequest) {
-        return sendRequestToAll(dataTransferRequest);
+    public void sendToAllDataTransferRequest(DataTransferRequest dataTransferRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(dataTransferRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-get-configuration-request")
-    public Response sendToAllGetConfigurationRequest(GetConfigurationRequest getConfigurationRequest) {
-        return sendRequestToAll(getConfigurationRequest);
+    public void sendToAllGetConfigurationRequest(GetConfigurationRequest getConfigurationRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(getConfigurationRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-remote-start-transaction-request")
-    public Response sendToAllRemoteStartTransactionRequest(RemoteStartTransactionRequest remoteStartTransactionRequest) {
-        return sendRequestToAll(remoteStartTransactionRequest);
+    public void sendToAllRemoteStartTransactionRequest(RemoteStartTransactionRequest remoteStartTransactionRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(remoteStartTransactionRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-remote-stop-transaction-request")
-    public Response sendToAllRemoteStopTransactionRequest(RemoteStopTransactionRequest remoteStopTransactionRequest) {
-        return sendRequestToAll(remoteStopTransactionRequest);
+    public void sendToAllRemoteStopTransactionRequest(RemoteStopTransactionRequest remoteStopTransactionRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(remoteStopTransactionRequest, asyncResponse);
     }
 
 
     @POST
     @Path("send-all-unlock-connector-request")
-    public Response sendToAllUnlockConnectorRequest(UnlockConnectorRequest unlockConnectorRequest) {
-        return sendRequestToAll(unlockConnectorRequest);
+    public void sendToAllUnlockConnectorRequest(UnlockConnectorRequest unlockConnectorRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(unlockConnectorRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-diagnostics-status-notification-request")
-    public Response sendToAllDiagnosticsStatusNotificationRequest(DiagnosticsStatusNotificationRequest diagnosticsStatusNotificationRequest) {
-        return sendRequestToAll(diagnosticsStatusNotificationRequest);
+    public void sendToAllDiagnosticsStatusNotificationRequest(DiagnosticsStatusNotificationRequest diagnosticsStatusNotificationRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(diagnosticsStatusNotificationRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-firmware-status-notification-request")
-    public Response sendToAllFirmwareStatusNotificationRequest(FirmwareStatusNotificationRequest firmwareStatusNotificationRequest) {
-        return sendRequestToAll(firmwareStatusNotificationRequest);
+    public void sendToAllFirmwareStatusNotificationRequest(FirmwareStatusNotificationRequest firmwareStatusNotificationRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(firmwareStatusNotificationRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-set-charging-profile-request")
-    public Response sendToAllSetChargingProfileRequest(SetChargingProfileRequest setChargingProfileRequest) {
-        return sendRequestToAll(setChargingProfileRequest);
+    public void sendToAllSetChargingProfileRequest(SetChargingProfileRequest setChargingProfileRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(setChargingProfileRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-clear-charging-profile-request")
-    public Response sendToAllClearChargingProfileRequest(ClearChargingProfileRequest clearChargingProfileRequest) {
-        return sendRequestToAll(clearChargingProfileRequest);
+    public void sendToAllClearChargingProfileRequest(ClearChargingProfileRequest clearChargingProfileRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(clearChargingProfileRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-trigger-message-request")
-    public Response sendToAllTriggerMessageRequest(TriggerMessageRequest triggerMessageRequest) {
-        return sendRequestToAll(triggerMessageRequest);
+    public void sendToAllTriggerMessageRequest(TriggerMessageRequest triggerMessageRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(triggerMessageRequest, asyncResponse);
     }
 
     @POST
     @Path("send-all-install-certificate-request")
-    public Response sendToAllInstallCertificateRequest(InstallCertificateRequest installCertificateRequest) {
-        return sendRequestToAll(installCertificateRequest);
+    public void sendToAllInstallCertificateRequest(InstallCertificateRequest installCertificateRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(installCertificateRequest, asyncResponse);
+    }
+
+    @POST
+    @Path("broadcast-reset-request")
+    public Response broadcastResetRequest(ResetRequest resetRequest) {
+        return startBroadcast(resetRequest);
+    }
+
+    @POST
+    @Path("broadcast-change-availability-request")
+    public Response broadcastChangeAvailabilityRequest(ChangeAvailabilityRequest changeAvailabilityRequest) {
+        return startBroadcast(changeAvailabilityRequest);
+    }
+
+    @POST
+    @Path("broadcast-change-configuration-request")
+    public Response broadcastChangeConfigurationRequest(ChangeConfigurationRequest changeConfigurationRequest) {
+        return startBroadcast(changeConfigurationRequest);
+    }
+
+    @POST
+    @Path("broadcast-clear-cache-request")
+    public Response broadcastClearCacheRequest(ClearCacheRequest clearCacheRequest) {
+        return startBroadcast(clearCacheRequest);
+    }
+
+    @POST
+    @Path("broadcast-data-transfer-request")
+    public Response broadcastDataTransferRequest(DataTransferRequest dataTransferRequest) {
+        return startBroadcast(dataTransferRequest);
+    }
+
+    @POST
+    @Path("broadcast-get-configuration-request")
+    public Response broadcastGetConfigurationRequest(GetConfigurationRequest getConfigurationRequest) {
+        return startBroadcast(getConfigurationRequest);
+    }
+
+    @POST
+    @Path("broadcast-trigger-message-request")
+    public Response broadcastTriggerMessageRequest(TriggerMessageRequest triggerMessageRequest) {
+        return startBroadcast(triggerMessageRequest);
+    }
+
+    @POST
+    @Path("broadcast-set-charging-profile-request")
+    public Response broadcastSetChargingProfileRequest(SetChargingProfileRequest setChargingProfileRequest) {
+        return startBroadcast(setChargingProfileRequest);
+    }
+
+    @POST
+    @Path("broadcast-clear-charging-profile-request")
+    public Response broadcastClearChargingProfileRequest(ClearChargingProfileRequest clearChargingProfileRequest) {
+        return startBroadcast(clearChargingProfileRequest);
+    }
+
+    @POST
+    @Path("broadcast-install-certificate-request")
+    public Response broadcastInstallCertificateRequest(InstallCertificateRequest installCertificateRequest) {
+        return startBroadcast(installCertificateRequest);
+    }
+
+    @POST
+    @Path("broadcast-signed-firmware-update")
+    public Response broadcastSignedUpdateFirmwareRequest(SignedUpdateFirmwareRequest signedUpdateFirmwareRequest) {
+        return startBroadcast(signedUpdateFirmwareRequest);
+    }
+
+    @GET
+    @Path("get-broadcast-progress")
+    public Response getBroadcastProgress(@QueryParam("jobId") String jobId) {
+        try {
+            return broadcastService.getProgress(UUID.fromString(jobId))
+                    .map(progress -> Response.ok().entity(progress).build())
+                    .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+    }
+
+    @GET
+    @Path("list-broadcasts")
+    public Response listBroadcasts() {
+        return Response.ok().entity(broadcastService.getAllProgress()).build();
+    }
+
+    @DELETE
+    @Path("cancel-broadcast")
+    public Response cancelBroadcast(@QueryParam("jobId") String jobId) {
+        try {
+            return broadcastService.cancel(UUID.fromString(jobId))
+                    ? Response.ok().build()
+                    : Response.status(Response.Status.NOT_FOUND).build();
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+    }
+
+    @GET
+    @Path("list-sessions")
+    public Response listSessions() {
+        List<SessionResponse> sessions = new LinkedList<>();
+        for (Map.Entry<UUID, SessionInformation> entry : sessionRegistry.snapshot().entrySet()) {
+            sessions.add(new SessionResponse(entry.getKey(), entry.getValue().getIdentifier(),
+                    String.valueOf(entry.getValue().getAddress())));
+        }
+        return Response.ok().entity(sessions).build();
+    }
+
+    @POST
+    @Path("set-message-trace-filter")
+    public Response setMessageTraceFilter(@QueryParam("identifiers") String identifiers,
+                                          @QueryParam("actions") String actions) {
+        messageTracer.setFilters(splitParam(identifiers), splitParam(actions));
+        return getMessageTraceFilter();
+    }
+
+    @GET
+    @Path("get-message-trace-filter")
+    public Response getMessageTraceFilter() {
+        Map<String, Object> filter = new LinkedHashMap<>();
+        filter.put("identifiers", messageTracer.getTracedIdentifiers());
+        filter.put("actions", messageTracer.getTracedActions());
+        return Response.ok().entity(filter).build();
+    }
+
+    @GET
+    @Path("get-journal-entries")
+    public Response getJournalEntries(@QueryParam("sessionUuid") String sessionUuid,
+                                      @DefaultValue("100") @QueryParam("limit") int limit) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(sessionUuid);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("sessionUuid is not a valid UUID").build();
+        }
+        try {
+            return Response.ok().entity(messageJournal.findBySession(uuid, Math.max(0, limit))).build();
+        } catch (IOException e) {
+            LOGGER.error("Could not read message journal", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                    String.format("Could not read message journal, error: %s", e.getMessage())).build();
+        }
+    }
+
+    @GET
+    @Path("get-certificate-signing-stats")
+    public Response getCertificateSigningStats() {
+        return Response.ok().entity(keystoreApi.getSigningStats()).build();
+    }
+
+    @GET
+    @Path("get-tls-session-stats")
+    public Response getTlsSessionStats() {
+        return Response.ok().entity(tlsSessionMetrics.getStats()).build();
+    }
+
+    @GET
+    @Path("get-handshake-admission-stats")
+    public Response getHandshakeAdmissionStats() {
+        return Response.ok().entity(admissionController.getStats()).build();
+    }
+
+    @POST
+    @Path("set-charge-point-password")
+    public Response setChargePointPassword(ChargePointPassword chargePointPassword) {
+        String identifier = chargePointPassword == null ? null : chargePointPassword.getIdentifier();
+        String password = chargePointPassword == null ? null : chargePointPassword.getPassword();
+        if (identifier == null || identifier.isBlank() || password == null || password.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("identifier and password are required").build();
+        }
+        try {
+            credentialStore.setPassword(identifier, password);
+            return Response.ok().build();
+        } catch (IOException e) {
+            LOGGER.error("Could not store charge point password", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e.getMessage()).build();
+        }
+    }
+
+    @DELETE
+    @Path("delete-charge-point-password")
+    public Response deleteChargePointPassword(@QueryParam("identifier") String identifier) {
+        try {
+            return credentialStore.deletePassword(identifier)
+                    ? Response.ok().build()
+                    : Response.status(Response.Status.NOT_FOUND).build();
+        } catch (IOException e) {
+            LOGGER.error("Could not delete charge point password", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e.getMessage()).build();
+        }
     }
 
     @POST
@@ -301,6 +526,24 @@ public class RestAPI {
         }
     }
 
+    @POST
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Path("upload-client-certs")
+    public Response uploadClientCertificates(@FormDataParam("file") InputStream uploadedInputStream,
+                                             @FormDataParam("file") FormDataContentDisposition fileDetail) {
+        if (uploadedInputStream == null) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        try {
+            return Response.ok(trustStoreService.addClientCertificates(uploadedInputStream)).build();
+        } catch (CertificateException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            LOGGER.error("Could not upload client certificates", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e.getMessage()).build();
+        }
+    }
+
     @DELETE
     @Path("delete-client-cert")
     public Response deleteClientCertificate(@QueryParam("alias") String alias) {
@@ -329,6 +572,19 @@ public class RestAPI {
         }
     }
 
+    @GET
+    @Path("find-trust-store-aliases")
+    public Response findClientCertificateAliases(@QueryParam("subject") String subject) {
+        if (subject == null || subject.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("subject is required").build();
+        }
+        try {
+            return Response.ok(trustStoreService.findAliasesBySubject(subject)).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
     @GET
     @Path("download-server-cert")
     public Response downloadServerCertificate(@QueryParam("uuid") String uuid) {
@@ -376,6 +632,30 @@ public class RestAPI {
         }
     }
 
+    @POST
+    @Path("swap-ssl-keystore")
+    public Response swapSslKeystore(@QueryParam("uuid") String uuid) {
+        UUID keystoreUUID;
+        try {
+            keystoreUUID = UUID.fromString(uuid);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Valid keystore uuid is required").build();
+        }
+        try {
+            ocppServerService.swapSslContext(keystoreApi.initializeSslContext(keystoreUUID));
+            config.setValue(ConfigKey.SSL_KEYSTORE_UUID, keystoreUUID.toString());
+            return Response.ok().build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            LOGGER.error("Could not swap ssl keystore", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                    String.format("Could not swap ssl keystore, error: %s", e.getMessage())).build();
+        }
+    }
+
     @GET
     @Path("get-keystore-config")
     public Response getKeyStoreConfig() {
@@ -399,23 +679,65 @@ public class RestAPI {
 
     @POST
     @Path("send-signed-firmware-update-to-all")
-    public Response sendSignedUpdateFirmwareRequestToAll(SignedUpdateFirmwareRequest signedUpdateFirmwareRequest) {
-        return sendRequestToAll(signedUpdateFirmwareRequest);
+    public void sendSignedUpdateFirmwareRequestToAll(SignedUpdateFirmwareRequest signedUpdateFirmwareRequest, @Suspended AsyncResponse asyncResponse) {
+        sendRequestToAll(signedUpdateFirmwareRequest, asyncResponse);
+    }
+
+    /**
+     * Sends request to all connected clients and resumes http response once every client answered or timed out,
+     * no jetty thread is held while waiting for clients
+     */
+    private void sendRequestToAll(Request request, AsyncResponse asyncResponse) {
+        int timeout = config.getInt(ConfigKey.REST_API_SEND_ALL_TIMEOUT_SECONDS);
+        Map<UUID, CompletionStage<Confirmation>> responsePromises = ocppServerService.sendToAll(request);
+
+        List<CompletableFuture<MultiClientResponse>> responses = new ArrayList<>(responsePromises.size());
+        for (Map.Entry<UUID, CompletionStage<Confirmation>> entry : responsePromises.entrySet()) {
+            CompletableFuture<Confirmation> response = entry.getValue().toCompletableFuture().copy();
+            if (timeout > 0) {
+                response.orTimeout(timeout, TimeUnit.SECONDS);
+            }
+            responses.add(response.handle((confirmation, throwable) ->
+                    toMultiClientResponse(entry.getKey(), confirmation, throwable)));
+        }
+
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]))
+                .thenApply(aVoid -> responses.stream().map(CompletableFuture::join).collect(Collectors.toList()))
+                .whenComplete((multiClientResponses, throwable) -> {
+                    if (throwable == null) {
+                        asyncResponse.resume(Response.ok().entity(multiClientResponses).build());
+                    } else {
+                        LOGGER.error("Could not send request", throwable);
+                        asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                                throwable.getMessage()).build());
+                    }
+                });
+    }
+
+    private static MultiClientResponse toMultiClientResponse(UUID uuid, Confirmation confirmation, Throwable throwable) {
+        if (throwable == null) {
+            return new MultiClientResponse(uuid, confirmation);
+        }
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        if (cause instanceof TimeoutException) {
+            return new MultiClientResponse(uuid, MultiClientResponse.Status.TIMEOUT, "Client did not respond in time");
+        }
+        LOGGER.error(String.format("Client %s responded with error", uuid), cause);
+        return new MultiClientResponse(uuid, MultiClientResponse.Status.ERROR, cause.getMessage());
     }
 
-    private Response sendRequestToAll(Request request) {
-        try {
-            List<MultiClientResponse> responses = new LinkedList<>();
-            Map<UUID, CompletionStage<Confirmation>> responsePromises = ocppServerService.sendToAll(request);
-            for (Map.Entry<UUID, CompletionStage<Confirmation>> entry : responsePromises.entrySet()) {
-                responses.add(new MultiClientResponse(entry.getKey(), entry.getValue().toCompletableFuture().get()));
-            }
+    private static List<String> splitParam(String param) {
+        return param == null || param.isEmpty() ? Collections.emptyList() : Arrays.asList(param.split(","));
+    }
 
-            return Response.ok().entity(responses).build();
-        } catch (NotConnectedException | OccurenceConstraintException | UnsupportedFeatureException | InterruptedException | ExecutionException e) {
-            LOGGER.error("Could not send request", e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e.getMessage()).build();
+    private Response startBroadcast(Request request) {
+        if (!ocppServerService.isRunning()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), "OCPP server is not running")
+                    .build();
         }
+        return Response.ok().entity(broadcastService.start(request)).build();
     }
 
     private Response sendRequestToFirstClient(Request request) {
@@ -450,22 +772,47 @@ public class RestAPI {
     }
 
     static class MultiClientResponse {
+        enum Status {
+            OK,
+            TIMEOUT,
+            ERROR
+        }
+
         private final UUID uuid;
+        private final Status status;
         private final Confirmation confirmation;
+        private final String error;
 
         public MultiClientResponse(UUID uuid, Confirmation confirmation) {
             this.uuid = uuid;
+            this.status = Status.OK;
             this.confirmation = confirmation;
+            this.error = null;
+        }
+
+        public MultiClientResponse(UUID uuid, Status status, String error) {
+            this.uuid = uuid;
+            this.status = status;
+            this.confirmation = null;
+            this.error = error;
         }
 
         public UUID getUuid() {
             return uuid;
         }
 
+        public Status getStatus() {
+            return status;
+        }
+
         public Confirmation getConfirmation() {
             return confirmation;
         }
 
+        public String getError() {
+            return error;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -476,12 +823,38 @@ public class RestAPI {
             }
             MultiClientResponse that = (MultiClientResponse) o;
             return Objects.equals(uuid, that.uuid) &&
-                    Objects.equals(confirmation, that.confirmation);
+                    status == that.status &&
+                    Objects.equals(confirmation, that.confirmation) &&
+                    Objects.equals(error, that.error);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(uuid, confirmation);
+            return Objects.hash(uuid, status, confirmation, error);
+        }
+    }
+
+    static class SessionResponse {
+        private final UUID uuid;
+        private final String identifier;
+        private final String address;
+
+        public SessionResponse(UUID uuid, String identifier, String address) {
+            this.uuid = uuid;
+            this.identifier = identifier;
+            this.address = address;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public String getAddress() {
+            return address;
         }
     }
 }
@@ -12,6 +12,8 @@ public class BaseWssFactoryBuilderWrapper implements WssFactoryBuilder {
     private List<String> ciphers = new ArrayList<>();
     private boolean clientAuthenticationNeeded;
     private SSLContext sslContext;
+    private TlsSessionMetrics sessionMetrics;
+    private DefaultSSLWebSocketServerFactoryWrapper factory;
 
     public BaseWssFactoryBuilderWrapper setCiphers(List<String> ciphers) {
         this.ciphers = ciphers;
@@ -23,17 +25,33 @@ public class BaseWssFactoryBuilderWrapper implements WssFactoryBuilder {
         return this;
     }
 
+    public BaseWssFactoryBuilderWrapper setSessionMetrics(TlsSessionMetrics sessionMetrics) {
+        this.sessionMetrics = sessionMetrics;
+        return this;
+    }
+
     public BaseWssFactoryBuilderWrapper setClientAuthenticationNeeded(boolean clientAuthenticationNeeded) {
         this.clientAuthenticationNeeded = clientAuthenticationNeeded;
         return this;
     }
 
     @Override
-    public WebSocketServerFactory build() {
+    public synchronized WebSocketServerFactory build() {
         verify();
-        return ciphers.isEmpty()
-                ? new DefaultSSLWebSocketServerFactoryWrapper(clientAuthenticationNeeded, sslContext)
-                : new CustomSSLWebSocketServerFactoryWrapper(clientAuthenticationNeeded, ciphers, sslContext);
+        factory = ciphers.isEmpty()
+                ? new DefaultSSLWebSocketServerFactoryWrapper(clientAuthenticationNeeded, sslContext, sessionMetrics)
+                : new CustomSSLWebSocketServerFactoryWrapper(clientAuthenticationNeeded, ciphers, sslContext, sessionMetrics);
+        return factory;
+    }
+
+    /**
+     * Makes sockets accepted from now on use given SSL context, connections established before are not affected
+     */
+    public synchronized void swapSslContext(SSLContext sslContext) {
+        if (factory != null) {
+            factory.setSslContext(sslContext);
+        }
+        this.sslContext = sslContext;
     }
 
     @Override
@@ -1,36 +1,25 @@
 package com.omb.ocpp.security;
 
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLEngine;
-import java.io.IOException;
-import java.nio.channels.ByteChannel;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 public class CustomSSLWebSocketServerFactoryWrapper extends DefaultSSLWebSocketServerFactoryWrapper {
 
-    private List<String> ciphers;
-
-    public CustomSSLWebSocketServerFactoryWrapper(boolean clientAuthenticationNeeded, List<String> ciphers, SSLContext sslContext) {
-        super(clientAuthenticationNeeded, sslContext);
-        this.ciphers = Objects.requireNonNull(ciphers);
+    public CustomSSLWebSocketServerFactoryWrapper(boolean clientAuthenticationNeeded, List<String> ciphers, SSLContext sslContext,
+                                                  TlsSessionMetrics sessionMetrics) {
+        super(clientAuthenticationNeeded, sslContext, sessionMetrics,
+                context -> enabledCipherSuites(context, Objects.requireNonNull(ciphers)));
     }
 
-    @Override
-    public ByteChannel wrapChannel(SocketChannel channel, SelectionKey key) throws IOException {
-        SSLEngine sslEngine = sslcontext.createSSLEngine();
-        /*
-         * See https://github.com/TooTallNate/Java-WebSocket/issues/466
-         *
-         * For TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256 you must patch your java installation directly.
-         */
-        List<String> enabledCiphers = new ArrayList<>(Arrays.asList(sslEngine.getEnabledCipherSuites()));
+    /*
+     * See https://github.com/TooTallNate/Java-WebSocket/issues/466
+     *
+     * For TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256 you must patch your java installation directly.
+     */
+    private static List<String> enabledCipherSuites(SSLContext sslContext, List<String> ciphers) {
+        List<String> enabledCiphers = contextCipherSuites(sslContext);
         enabledCiphers.retainAll(ciphers);
-
-        return createSslSocket(channel, key, enabledCiphers);
+        return enabledCiphers;
     }
 }
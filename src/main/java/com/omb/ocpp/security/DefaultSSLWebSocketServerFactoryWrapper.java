@@ -1,6 +1,5 @@
 package com.omb.ocpp.security;
 
-import org.java_websocket.SSLSocketChannel2;
 import org.java_websocket.server.DefaultSSLWebSocketServerFactory;
 
 import javax.net.ssl.SSLContext;
@@ -12,29 +11,77 @@ import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
 
+/**
+ * Effective cipher suites are computed once per SSL context, every accepted socket gets exactly one engine.
+ * SSL context can be replaced at runtime, only sockets accepted after that use the new one.
+ */
 public class DefaultSSLWebSocketServerFactoryWrapper extends DefaultSSLWebSocketServerFactory {
 
     private boolean clientAuthenticationNeeded;
+    private final TlsSessionMetrics sessionMetrics;
+    private final Function<SSLContext, List<String>> cipherSuitesResolver;
+    private volatile EngineSettings engineSettings;
 
-    public DefaultSSLWebSocketServerFactoryWrapper(boolean clientAuthenticationNeeded, SSLContext sslContext) {
+    public DefaultSSLWebSocketServerFactoryWrapper(boolean clientAuthenticationNeeded, SSLContext sslContext,
+                                                   TlsSessionMetrics sessionMetrics) {
+        this(clientAuthenticationNeeded, sslContext, sessionMetrics, DefaultSSLWebSocketServerFactoryWrapper::defaultCipherSuites);
+    }
+
+    protected DefaultSSLWebSocketServerFactoryWrapper(boolean clientAuthenticationNeeded, SSLContext sslContext,
+                                                      TlsSessionMetrics sessionMetrics,
+                                                      Function<SSLContext, List<String>> cipherSuitesResolver) {
         super(sslContext);
         this.clientAuthenticationNeeded = clientAuthenticationNeeded;
+        this.sessionMetrics = sessionMetrics;
+        this.cipherSuitesResolver = cipherSuitesResolver;
+        this.engineSettings = new EngineSettings(sslContext, cipherSuitesResolver.apply(sslContext));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the context supports none of the configured cipher suites, current context
+     *                                  stays in use
+     */
+    public void setSslContext(SSLContext sslContext) {
+        Objects.requireNonNull(sslContext);
+        List<String> cipherSuites = cipherSuitesResolver.apply(sslContext);
+        if (cipherSuites.isEmpty()) {
+            throw new IllegalArgumentException("SSL context supports none of the configured cipher suites");
+        }
+        engineSettings = new EngineSettings(sslContext, cipherSuites);
+        sslcontext = sslContext;
     }
 
     @Override
     public ByteChannel wrapChannel(SocketChannel channel, SelectionKey key) throws IOException {
-        SSLEngine sslEngine = sslcontext.createSSLEngine();
-        List<String> ciphers = new ArrayList<>(Arrays.asList(sslEngine.getEnabledCipherSuites()));
+        long connectedAt = System.currentTimeMillis();
+        EngineSettings settings = engineSettings;
+        SSLEngine e = settings.sslContext.createSSLEngine();
+        e.setEnabledCipherSuites(settings.cipherSuites);
+        e.setUseClientMode(false);
+        e.setNeedClientAuth(clientAuthenticationNeeded);
+        return new ResumptionTrackingSSLSocketChannel(channel, e, exec, key, sessionMetrics, connectedAt);
+    }
+
+    protected static List<String> contextCipherSuites(SSLContext sslContext) {
+        return new ArrayList<>(Arrays.asList(sslContext.createSSLEngine().getEnabledCipherSuites()));
+    }
+
+    private static List<String> defaultCipherSuites(SSLContext sslContext) {
+        List<String> ciphers = contextCipherSuites(sslContext);
         ciphers.remove("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256");
-        return createSslSocket(channel, key, ciphers);
+        return ciphers;
     }
 
-    protected ByteChannel createSslSocket(SocketChannel channel, SelectionKey key, List<String> enabledCiphers) throws IOException {
-        SSLEngine e = sslcontext.createSSLEngine();
-        e.setEnabledCipherSuites(enabledCiphers.toArray(new String[enabledCiphers.size()]));
-        e.setUseClientMode(false);
-        e.setNeedClientAuth(clientAuthenticationNeeded);
-        return new SSLSocketChannel2(channel, e, exec, key);
+    private static class EngineSettings {
+        private final SSLContext sslContext;
+        private final String[] cipherSuites;
+
+        EngineSettings(SSLContext sslContext, List<String> cipherSuites) {
+            this.sslContext = sslContext;
+            this.cipherSuites = cipherSuites.toArray(new String[0]);
+        }
     }
 }
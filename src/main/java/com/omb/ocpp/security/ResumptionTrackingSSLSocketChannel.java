@@ -0,0 +1,41 @@
+package com.omb.ocpp.security;
+
+import org.java_websocket.SSLSocketChannel2;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reports to {@link TlsSessionMetrics} whether the handshake resumed a session.
+ * Resumed session keeps creation time of the original session, so it is older than the connection.
+ */
+class ResumptionTrackingSSLSocketChannel extends SSLSocketChannel2 {
+    private static final String NULL_CIPHER_SUITE = "SSL_NULL_WITH_NULL_NULL";
+
+    // super constructor calls createBuffers before these are assigned, so they must not have initializers
+    private long connectedAt;
+    private TlsSessionMetrics sessionMetrics;
+    private boolean handshakeRecorded;
+
+    ResumptionTrackingSSLSocketChannel(SocketChannel channel, SSLEngine sslEngine, ExecutorService executorService,
+                                       SelectionKey key, TlsSessionMetrics sessionMetrics, long connectedAt) throws IOException {
+        super(channel, sslEngine, executorService, key);
+        this.sessionMetrics = sessionMetrics;
+        this.connectedAt = connectedAt;
+    }
+
+    @Override
+    protected void createBuffers(SSLSession session) {
+        super.createBuffers(session);
+        // called with the not yet negotiated session from the constructor and again once handshake is finished
+        if (sessionMetrics == null || handshakeRecorded || NULL_CIPHER_SUITE.equals(session.getCipherSuite())) {
+            return;
+        }
+        handshakeRecorded = true;
+        sessionMetrics.recordHandshake(session.getCreationTime() < connectedAt);
+    }
+}
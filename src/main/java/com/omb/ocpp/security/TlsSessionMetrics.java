@@ -0,0 +1,26 @@
+package com.omb.ocpp.security;
+
+import org.jvnet.hk2.annotations.Service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts completed server side TLS handshakes, split to full handshakes and resumed sessions
+ */
+@Service
+public class TlsSessionMetrics {
+    private final LongAdder fullHandshakes = new LongAdder();
+    private final LongAdder resumedHandshakes = new LongAdder();
+
+    public void recordHandshake(boolean resumed) {
+        if (resumed) {
+            resumedHandshakes.increment();
+        } else {
+            fullHandshakes.increment();
+        }
+    }
+
+    public TlsSessionStats getStats() {
+        return new TlsSessionStats(fullHandshakes.sum(), resumedHandshakes.sum());
+    }
+}
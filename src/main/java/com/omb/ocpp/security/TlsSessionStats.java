@@ -0,0 +1,30 @@
+package com.omb.ocpp.security;
+
+/**
+ * Immutable view of TLS handshake counters, returned by REST API
+ */
+public class TlsSessionStats {
+    private final long fullHandshakes;
+    private final long resumedHandshakes;
+
+    TlsSessionStats(long fullHandshakes, long resumedHandshakes) {
+        this.fullHandshakes = fullHandshakes;
+        this.resumedHandshakes = resumedHandshakes;
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes;
+    }
+
+    public long getResumedHandshakes() {
+        return resumedHandshakes;
+    }
+
+    /**
+     * @return share of handshakes which resumed a previous session, 0 if there were no handshakes
+     */
+    public double getResumptionRate() {
+        long total = fullHandshakes + resumedHandshakes;
+        return total == 0 ? 0 : (double) resumedHandshakes / total;
+    }
+}
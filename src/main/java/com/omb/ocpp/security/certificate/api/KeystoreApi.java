@@ -2,6 +2,7 @@ package com.omb.ocpp.security.certificate.api;
 
 import com.omb.ocpp.security.certificate.config.KeystoreCertificateConfig;
 import com.omb.ocpp.security.certificate.config.KeystoreConfigRegistry;
+import com.omb.ocpp.security.certificate.service.SigningStats;
 
 import javax.net.ssl.SSLContext;
 import java.security.KeyStore;
@@ -10,6 +11,7 @@ import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface KeystoreApi {
@@ -44,6 +46,11 @@ public interface KeystoreApi {
 
     void setKeystoreListener(Consumer<Void> listener);
 
+    /**
+     * Drops cached trust store and SSL contexts built with it, called after the trust store file was written
+     */
+    void invalidateTrustStore();
+
     /**
      * Takes first found server certificate and uses it as a CA to sign public key from CSR
      * then encodes leaf certificate as PEM
@@ -61,4 +68,22 @@ public interface KeystoreApi {
      * @return DER encoded signed leaf certificate
      */
     List<String> signDerCertificate(String csr);
+
+    /**
+     * Same as {@link #signPemCertificate(String)}, but signs on the signing worker pool without blocking caller
+     *
+     * @param csr pem encoded CSR
+     * @return future of PEM encoded signed leaf certificate, completed exceptionally if signing failed
+     */
+    CompletableFuture<String> signPemCertificateAsync(String csr);
+
+    /**
+     * Same as {@link #signDerCertificate(String)}, but signs on the signing worker pool without blocking caller
+     *
+     * @param csr pem encoded CSR
+     * @return future of DER encoded signed leaf certificate, completed exceptionally if signing failed
+     */
+    CompletableFuture<List<String>> signDerCertificateAsync(String csr);
+
+    SigningStats getSigningStats();
 }
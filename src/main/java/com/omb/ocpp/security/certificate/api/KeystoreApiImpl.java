@@ -4,129 +4,146 @@ import com.omb.ocpp.config.Config;
 import com.omb.ocpp.config.ConfigKey;
 import com.omb.ocpp.security.certificate.config.KeystoreCertificateConfig;
 import com.omb.ocpp.security.certificate.config.KeystoreConfigRegistry;
+import com.omb.ocpp.security.certificate.service.CertificateSigningService;
+import com.omb.ocpp.security.certificate.service.CertificateSigningService.SignedCertificate;
 import com.omb.ocpp.security.certificate.service.CreateKeystoreCertificateService;
 import com.omb.ocpp.security.certificate.service.CreateOrGetKeystoreCertificatesConfigService;
 import com.omb.ocpp.security.certificate.service.DeleteKeystoreCertificateConfigService;
 import com.omb.ocpp.security.certificate.service.GetKeyStoreDetailsService;
 import com.omb.ocpp.security.certificate.service.InitializeSslContextService;
-import org.apache.commons.lang3.tuple.Pair;
+import com.omb.ocpp.security.certificate.service.KeystoreCache;
+import com.omb.ocpp.security.certificate.service.SerialNumberAllocator;
+import com.omb.ocpp.security.certificate.service.SigningStats;
 import org.bouncycastle.asn1.ASN1OutputStream;
 import org.bouncycastle.asn1.ASN1Primitive;
-import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.cert.X509CertificateHolder;
-import org.bouncycastle.cert.X509v3CertificateBuilder;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.bouncycastle.openssl.PEMParser;
 import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
-import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
-import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.net.ssl.SSLContext;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StringReader;
 import java.io.StringWriter;
-import java.math.BigInteger;
-import java.net.InetAddress;
+import java.nio.file.Path;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
-import java.security.PrivateKey;
-import java.security.Security;
 import java.security.cert.Certificate;
-import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static com.omb.ocpp.security.certificate.KeystoreConstants.ISSUED_SERIALS_PATH;
+import static com.omb.ocpp.security.certificate.KeystoreConstants.KEYSTORE_CERTIFICATE_CONFIG_PATH;
 import static com.omb.ocpp.security.certificate.KeystoreConstants.OCPP_SERVER_CERT;
-import static com.omb.ocpp.security.certificate.KeystoreConstants.OCPP_SERVER_PRIVATE_KEY;
+import static com.omb.ocpp.security.certificate.KeystoreConstants.TRUST_STORE_PATH;
 
 public class KeystoreApiImpl implements KeystoreApi {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(KeystoreApiImpl.class);
 
+    private static final String REGISTRY_CACHE_KEY = "keystore-registry";
+    // session settings are applied when context is built, so they are part of the key
+    private static final String SSL_CONTEXT_CACHE_KEY = "ssl-context-%s-%d-%d";
+
     private Consumer<Void> certChangeListener = aVoid -> LOGGER.debug("No listeners attached");
+    private final KeystoreCache keystoreCache = new KeystoreCache();
+    private final SerialNumberAllocator serialNumberAllocator = new SerialNumberAllocator(ISSUED_SERIALS_PATH);
+    private volatile CertificateSigningService signingService;
 
     @Inject
     private Config config;
 
     @Override
     public synchronized KeystoreCertificateConfig createKeystoreCertificate() throws Exception {
-        CreateKeystoreCertificateService service = new CreateKeystoreCertificateService(this);
-        KeystoreCertificateConfig keystoreCertificateConfig = service.execute();
+        CreateKeystoreCertificateService service = new CreateKeystoreCertificateService(this, serialNumberAllocator);
+        KeystoreCertificateConfig keystoreCertificateConfig;
+        try {
+            keystoreCertificateConfig = service.execute();
+        } finally {
+            keystoreCache.invalidateAll();
+        }
         certChangeListener.accept(null);
         return keystoreCertificateConfig;
     }
 
+    /**
+     * Cached reads do not take the monitor, so signing and handshakes are not serialized behind each other, only
+     * loading the registry does because it may create the registry file
+     */
     @Override
-    public synchronized KeystoreConfigRegistry getKeystoreConfigRegistry() throws Exception {
+    public KeystoreConfigRegistry getKeystoreConfigRegistry() throws Exception {
         CreateOrGetKeystoreCertificatesConfigService service = new CreateOrGetKeystoreCertificatesConfigService();
-        return service.execute();
+        return keystoreCache.get(REGISTRY_CACHE_KEY, List.of(KEYSTORE_CERTIFICATE_CONFIG_PATH), () -> {
+            synchronized (this) {
+                return service.execute();
+            }
+        });
     }
 
     @Override
-    public synchronized KeystoreCertificateConfig getKeystoreCertificateConfig(UUID keystoreUUID) throws Exception {
+    public KeystoreCertificateConfig getKeystoreCertificateConfig(UUID keystoreUUID) throws Exception {
         return getKeystoreConfigRegistry().getKeystoreCertificateConfig(keystoreUUID);
     }
 
     @Override
-    public synchronized KeystoreCertificateConfig getTrustStoreCertificateConfig() throws Exception {
+    public KeystoreCertificateConfig getTrustStoreCertificateConfig() throws Exception {
         return getKeystoreConfigRegistry().getTrustStoreConfig();
     }
 
     @Override
     public synchronized void deleteKeystoreCertificate(UUID keystoreUUID) throws Exception {
         DeleteKeystoreCertificateConfigService service = new DeleteKeystoreCertificateConfigService(this, keystoreUUID);
-        service.execute();
+        try {
+            service.execute();
+        } finally {
+            keystoreCache.invalidateAll();
+        }
         certChangeListener.accept(null);
     }
 
     @Override
     public List<KeyStore> getKeyStores() throws Exception {
-        GetKeyStoreDetailsService service = new GetKeyStoreDetailsService(this);
+        GetKeyStoreDetailsService service = new GetKeyStoreDetailsService(this, keystoreCache);
         return service.getKeyStores();
     }
 
     @Override
-    public synchronized KeyStore getKeyStores(UUID keystoreUUID) throws Exception {
-        GetKeyStoreDetailsService service = new GetKeyStoreDetailsService(this);
+    public KeyStore getKeyStores(UUID keystoreUUID) throws Exception {
+        GetKeyStoreDetailsService service = new GetKeyStoreDetailsService(this, keystoreCache);
         return service.getKeyStores(keystoreUUID);
     }
 
     @Override
-    public synchronized List<KeyStore> getKeyStores(List<UUID> keystoreUUIDs) throws Exception {
-        GetKeyStoreDetailsService service = new GetKeyStoreDetailsService(this);
+    public List<KeyStore> getKeyStores(List<UUID> keystoreUUIDs) throws Exception {
+        GetKeyStoreDetailsService service = new GetKeyStoreDetailsService(this, keystoreCache);
         return service.getKeyStores(keystoreUUIDs);
     }
 
     @Override
-    public synchronized KeyStore getTrustStore() throws Exception {
-        GetKeyStoreDetailsService service = new GetKeyStoreDetailsService(this);
+    public KeyStore getTrustStore() throws Exception {
+        GetKeyStoreDetailsService service = new GetKeyStoreDetailsService(this, keystoreCache);
         return service.getTrustStore();
     }
 
     @Override
     public SSLContext initializeSslContext(UUID keystoreUUID) throws Exception {
-        InitializeSslContextService service = new InitializeSslContextService(this, keystoreUUID);
-        return service.execute();
+        InitializeSslContextService service = new InitializeSslContextService(this, keystoreUUID, config);
+        List<Path> files = List.of(KEYSTORE_CERTIFICATE_CONFIG_PATH,
+                getKeystoreCertificateConfig(keystoreUUID).getKeystorePath(), TRUST_STORE_PATH);
+        String cacheKey = String.format(SSL_CONTEXT_CACHE_KEY, keystoreUUID,
+                config.getInt(ConfigKey.SSL_SESSION_CACHE_SIZE), config.getInt(ConfigKey.SSL_SESSION_TIMEOUT_SECONDS));
+        return keystoreCache.get(cacheKey, files, service::execute);
     }
 
     @Override
@@ -150,7 +167,7 @@ public class KeystoreApiImpl implements KeystoreApi {
     }
 
     @Override
-    public synchronized X509Certificate getServerCertificate(UUID keystoreUUID) throws Exception {
+    public X509Certificate getServerCertificate(UUID keystoreUUID) throws Exception {
         Certificate certificate = getKeyStores(keystoreUUID).getCertificate(OCPP_SERVER_CERT);
         if (certificate instanceof X509Certificate) {
             return (X509Certificate) certificate;
@@ -171,7 +188,7 @@ public class KeystoreApiImpl implements KeystoreApi {
     }
 
     @Override
-    public synchronized UUID getKeyStoreUUIDByCertificate(Certificate certificate) throws Exception {
+    public UUID getKeyStoreUUIDByCertificate(Certificate certificate) throws Exception {
         for (KeystoreCertificateConfig keyStoreConfig : getKeystoreConfigRegistry().getKeystoreCertificatesConfig()) {
             KeyStore keyStore = getKeyStores(keyStoreConfig.getUuid());
             if (keyStore.getCertificateAlias(certificate) != null) {
@@ -186,11 +203,16 @@ public class KeystoreApiImpl implements KeystoreApi {
         this.certChangeListener = listener;
     }
 
+    @Override
+    public void invalidateTrustStore() {
+        keystoreCache.invalidateAll();
+    }
+
     @Override
     public String signPemCertificate(String csrString) {
         try {
-            Pair<Certificate, Certificate> certificatePair = generateCertificate(csrString);
-            return pemEncode(certificatePair.getLeft(), certificatePair.getRight()).orElse("");
+            SignedCertificate signed = getSigningService().signNow(csrString);
+            return pemEncode(signed.getCaCertificate(), signed.getCertificate()).orElse("");
         } catch (Exception e) {
             LOGGER.error("Could not create pem certificate", e);
             return "";
@@ -200,56 +222,47 @@ public class KeystoreApiImpl implements KeystoreApi {
     @Override
     public List<String> signDerCertificate(String csrString) {
         try {
-            Pair<Certificate, Certificate> certificatePair = generateCertificate(csrString);
-            return derEncode(certificatePair.getLeft(), certificatePair.getRight());
+            SignedCertificate signed = getSigningService().signNow(csrString);
+            return derEncode(signed.getCaCertificate(), signed.getCertificate());
         } catch (Exception e) {
             LOGGER.error("Could not create der certificate", e);
             return Collections.emptyList();
         }
     }
 
-    private Pair generateCertificate(String csrString) throws Exception {
-
-        Security.setProperty("crypto.policy", "unlimited");
-        Security.addProvider(new BouncyCastleProvider());
-        String signAlgorithm = "SHA256withECDSA";
-        Instant validFrom = Instant.now();
-        Instant validTo = Instant.now().plus(config.getInt(ConfigKey.CERTIFICATE_EXPIRATION_IN_MINUTES), ChronoUnit.MINUTES);
-        PKCS10CertificationRequest csr = parseStringToPKCS10(csrString);
-
-        //Get CA key pair
-        List<KeystoreCertificateConfig> keystoreCertificateConfigs = getKeystoreConfigRegistry()
-                .getKeystoreCertificatesConfig()
-                .stream()
-                .filter(keystoreCertificateConfig -> !keystoreCertificateConfig.getKeystorePath().toString().endsWith("trust-store.jks"))
-                .collect(Collectors.toList());
-        if (keystoreCertificateConfigs.isEmpty()) {
-            throw new Exception("Can't sign certificate, please generate server certificate to use it as CA");
+    @Override
+    public CompletableFuture<String> signPemCertificateAsync(String csrString) {
+        return getSigningService().sign(csrString)
+                .thenApply(signed -> pemEncode(signed.getCaCertificate(), signed.getCertificate()).orElse(""));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> signDerCertificateAsync(String csrString) {
+        return getSigningService().sign(csrString).thenApply(signed -> {
+            try {
+                return derEncode(signed.getCaCertificate(), signed.getCertificate());
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    @Override
+    public SigningStats getSigningStats() {
+        return getSigningService().getStats();
+    }
+
+    private CertificateSigningService getSigningService() {
+        CertificateSigningService service = signingService;
+        if (service == null) {
+            synchronized (this) {
+                if (signingService == null) {
+                    signingService = new CertificateSigningService(this, serialNumberAllocator, config);
+                }
+                service = signingService;
+            }
         }
-        KeystoreCertificateConfig keyStoreConfig = keystoreCertificateConfigs.get(0);
-        KeyStore keyStore = getKeyStores(keyStoreConfig.getUuid());
-        PrivateKey caPrivateKey = (PrivateKey) keyStore.getKey(OCPP_SERVER_PRIVATE_KEY, keyStoreConfig.getKeystorePassword().toCharArray());
-        Certificate caCertificate = keyStore.getCertificate(OCPP_SERVER_CERT);
-
-        //Add cert information
-        BigInteger certSerial = BigInteger.valueOf(new Random().nextInt());
-        String domainName = InetAddress.getLocalHost().getHostName();
-        X500Name issuerName = new X500Name("CN=" + domainName);
-        X509v3CertificateBuilder certificateBuilder =
-                new X509v3CertificateBuilder(issuerName, certSerial, Date.from(validFrom), Date.from(validTo), csr.getSubject(), csr.getSubjectPublicKeyInfo());
-
-        //Add cert signature
-        ContentSigner signer = new JcaContentSignerBuilder(signAlgorithm).build(caPrivateKey);
-        X509CertificateHolder certificateHolder = certificateBuilder.build(signer);
-
-        //Create certificate in BC format
-        org.bouncycastle.asn1.x509.Certificate bcCertificate = certificateHolder.toASN1Structure();
-
-        //Convert BC format to regular Java certificate
-        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509", "BC");
-        Certificate certificate = certificateFactory.generateCertificate(new ByteArrayInputStream(bcCertificate.getEncoded()));
-
-        return Pair.of(caCertificate, certificate);
+        return service;
     }
 
     private Optional<String> pemEncode(Certificate caCertificate, Certificate signedCertificate) {
@@ -288,12 +301,4 @@ public class KeystoreApiImpl implements KeystoreApi {
             }
         }
     }
-
-    private PKCS10CertificationRequest parseStringToPKCS10(String pemEncodedCsr) throws IOException {
-        Reader csrReader = new StringReader(pemEncodedCsr);
-        try (PEMParser pemParser = new PEMParser(csrReader)) {
-            Object pemObj = pemParser.readObject();
-            return (PKCS10CertificationRequest) pemObj;
-        }
-    }
 }
@@ -0,0 +1,246 @@
+package com.omb.ocpp.security.certificate.service;
+
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
+import com.omb.ocpp.security.certificate.api.KeystoreApi;
+import com.omb.ocpp.security.certificate.config.KeystoreCertificateConfig;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.omb.ocpp.security.certificate.KeystoreConstants.OCPP_SERVER_CERT;
+import static com.omb.ocpp.security.certificate.KeystoreConstants.OCPP_SERVER_PRIVATE_KEY;
+
+/**
+ * Signs CSRs with the first server certificate used as CA.
+ * CA key and certificate are extracted once and reused until the CA keystore changes, signing runs on a bounded
+ * worker pool, every worker keeps its own content signer.
+ */
+public class CertificateSigningService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CertificateSigningService.class);
+    private static final String SIGN_ALGORITHM = "SHA256withECDSA";
+
+    static {
+        Security.setProperty("crypto.policy", "unlimited");
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    private final KeystoreApi keystoreApi;
+    private final SerialNumberAllocator serialNumberAllocator;
+    private final Config config;
+    private final ThreadPoolExecutor executor;
+    private final SigningStatsRecorder statsRecorder = new SigningStatsRecorder();
+    private final ThreadLocal<WorkerSigner> workerSigner = new ThreadLocal<>();
+    private volatile CaMaterial caMaterial;
+
+    public CertificateSigningService(KeystoreApi keystoreApi, SerialNumberAllocator serialNumberAllocator, Config config) {
+        this.keystoreApi = keystoreApi;
+        this.serialNumberAllocator = serialNumberAllocator;
+        this.config = config;
+        int threads = Math.max(1, config.getInt(ConfigKey.CERTIFICATE_SIGNING_THREADS));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getInt(ConfigKey.CERTIFICATE_SIGNING_QUEUE_SIZE))),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "certificate-signing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @param csrString pem encoded CSR
+     * @return signed leaf certificate and CA certificate, completes exceptionally if queue is full or signing fails
+     */
+    public CompletableFuture<SignedCertificate> sign(String csrString) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> sign(csrString, queuedAt), executor);
+        } catch (RejectedExecutionException e) {
+            statsRecorder.recordRejected();
+            return CompletableFuture.failedFuture(new SigningException("Signing queue is full", e));
+        }
+    }
+
+    /**
+     * Signs on the calling thread, for callers that wait for the result anyway
+     *
+     * @param csrString pem encoded CSR
+     * @return signed leaf certificate and CA certificate
+     * @throws SigningException if signing fails
+     */
+    public SignedCertificate signNow(String csrString) {
+        return sign(csrString, System.nanoTime());
+    }
+
+    public SigningStats getStats() {
+        return statsRecorder.snapshot(executor.getQueue().size());
+    }
+
+    private SignedCertificate sign(String csrString, long queuedAt) {
+        try {
+            SignedCertificate signedCertificate = createCertificate(csrString);
+            statsRecorder.recordSigned(System.nanoTime() - queuedAt);
+            return signedCertificate;
+        } catch (Exception e) {
+            statsRecorder.recordFailed();
+            throw new SigningException(e);
+        }
+    }
+
+    private SignedCertificate createCertificate(String csrString) throws Exception {
+        CaMaterial ca = getCaMaterial();
+        PKCS10CertificationRequest csr = parseStringToPKCS10(csrString);
+        Instant validFrom = Instant.now();
+        Instant validTo = validFrom.plus(config.getInt(ConfigKey.CERTIFICATE_EXPIRATION_IN_MINUTES), ChronoUnit.MINUTES);
+        BigInteger certSerial = serialNumberAllocator.allocate();
+
+        X509v3CertificateBuilder certificateBuilder = new X509v3CertificateBuilder(ca.issuerName, certSerial,
+                Date.from(validFrom), Date.from(validTo), csr.getSubject(), csr.getSubjectPublicKeyInfo());
+        WorkerSigner signer = getWorkerSigner(ca);
+        X509Certificate certificate = signer.converter.getCertificate(certificateBuilder.build(signer.contentSigner));
+        return new SignedCertificate(certificate, ca.certificate);
+    }
+
+    /**
+     * CA keystore comes from keystore cache, same keystore instance means CA did not change
+     */
+    private CaMaterial getCaMaterial() throws Exception {
+        List<KeystoreCertificateConfig> keystoreCertificateConfigs = keystoreApi.getKeystoreConfigRegistry()
+                .getKeystoreCertificatesConfig()
+                .stream()
+                .filter(keystoreCertificateConfig -> !keystoreCertificateConfig.getKeystorePath().toString().endsWith("trust-store.jks"))
+                .collect(Collectors.toList());
+        if (keystoreCertificateConfigs.isEmpty()) {
+            throw new SigningException("Can't sign certificate, please generate server certificate to use it as CA");
+        }
+        KeystoreCertificateConfig keyStoreConfig = keystoreCertificateConfigs.get(0);
+        KeyStore keyStore = keystoreApi.getKeyStores(keyStoreConfig.getUuid());
+        CaMaterial current = caMaterial;
+        if (current != null && current.keyStore == keyStore) {
+            return current;
+        }
+        synchronized (this) {
+            if (caMaterial == null || caMaterial.keyStore != keyStore) {
+                LOGGER.info("Loading CA for certificate signing from keystore {}", keyStoreConfig.getUuid());
+                PrivateKey privateKey = (PrivateKey) keyStore.getKey(OCPP_SERVER_PRIVATE_KEY,
+                        keyStoreConfig.getKeystorePassword().toCharArray());
+                X509Certificate certificate = (X509Certificate) keyStore.getCertificate(OCPP_SERVER_CERT);
+                caMaterial = new CaMaterial(keyStore, privateKey, certificate);
+            }
+            return caMaterial;
+        }
+    }
+
+    private WorkerSigner getWorkerSigner(CaMaterial ca) throws OperatorCreationException {
+        WorkerSigner signer = workerSigner.get();
+        if (signer == null || signer.ca != ca) {
+            signer = new WorkerSigner(ca);
+            workerSigner.set(signer);
+        }
+        return signer;
+    }
+
+    private static PKCS10CertificationRequest parseStringToPKCS10(String pemEncodedCsr) throws IOException {
+        try (PEMParser pemParser = new PEMParser(new StringReader(pemEncodedCsr))) {
+            Object pemObj = pemParser.readObject();
+            if (!(pemObj instanceof PKCS10CertificationRequest)) {
+                throw new IOException("Pem encoded CSR expected");
+            }
+            return (PKCS10CertificationRequest) pemObj;
+        }
+    }
+
+    public static class SignedCertificate {
+        private final X509Certificate certificate;
+        private final Certificate caCertificate;
+
+        SignedCertificate(X509Certificate certificate, Certificate caCertificate) {
+            this.certificate = certificate;
+            this.caCertificate = caCertificate;
+        }
+
+        public X509Certificate getCertificate() {
+            return certificate;
+        }
+
+        public Certificate getCaCertificate() {
+            return caCertificate;
+        }
+    }
+
+    public static class SigningException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SigningException(String message) {
+            super(message);
+        }
+
+        SigningException(String message, Throwable cause) {
+            super(message, cause);
+        }
+
+        SigningException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private static class CaMaterial {
+        private final KeyStore keyStore;
+        private final PrivateKey privateKey;
+        private final X509Certificate certificate;
+        private final X500Name issuerName;
+
+        private CaMaterial(KeyStore keyStore, PrivateKey privateKey, X509Certificate certificate) {
+            this.keyStore = keyStore;
+            this.privateKey = privateKey;
+            this.certificate = certificate;
+            this.issuerName = X500Name.getInstance(certificate.getSubjectX500Principal().getEncoded());
+        }
+    }
+
+    /**
+     * Content signer is stateful, so each worker thread has its own
+     */
+    private static class WorkerSigner {
+        private final CaMaterial ca;
+        private final ContentSigner contentSigner;
+        private final JcaX509CertificateConverter converter =
+                new JcaX509CertificateConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME);
+
+        private WorkerSigner(CaMaterial ca) throws OperatorCreationException {
+            this.ca = ca;
+            this.contentSigner = new JcaContentSignerBuilder(SIGN_ALGORITHM).build(ca.privateKey);
+        }
+    }
+}
@@ -41,7 +41,6 @@ import java.time.ZonedDateTime;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Objects;
-import java.util.Random;
 import java.util.UUID;
 
 import static com.omb.ocpp.security.certificate.KeystoreConstants.OCPP_SERVER_CERT;
@@ -50,9 +49,11 @@ import static com.omb.ocpp.security.certificate.KeystoreConstants.OCPP_SERVER_PR
 public class CreateKeystoreCertificateService {
 
     private final KeystoreApi keystoreApi;
+    private final SerialNumberAllocator serialNumberAllocator;
 
-    public CreateKeystoreCertificateService(KeystoreApi keystoreApi) {
+    public CreateKeystoreCertificateService(KeystoreApi keystoreApi, SerialNumberAllocator serialNumberAllocator) {
         this.keystoreApi = Objects.requireNonNull(keystoreApi);
+        this.serialNumberAllocator = Objects.requireNonNull(serialNumberAllocator);
     }
 
     public KeystoreCertificateConfig execute() throws Exception {
@@ -107,7 +108,7 @@ public class CreateKeystoreCertificateService {
         String domainName = InetAddress.getLocalHost().getHostName();
         X500Name issuerName = new X500Name("CN=" + domainName);
         X500Name subjectName = new X500Name("CN=" + domainName);
-        BigInteger certSerial = BigInteger.valueOf(new Random().nextInt());
+        BigInteger certSerial = serialNumberAllocator.allocate();
         String pkAlgorithm = "ECDSA";
         AlgorithmParameterSpec spec = ECNamedCurveTable.getParameterSpec("prime256v1");
         String signAlgorithm = "SHA256withECDSA";
@@ -22,9 +22,11 @@ import static com.omb.ocpp.security.certificate.KeystoreConstants.TRUST_STORE_UU
 public class GetKeyStoreDetailsService {
 
     private final KeystoreApi keystoreApi;
+    private final KeystoreCache keystoreCache;
 
-    public GetKeyStoreDetailsService(KeystoreApi keystoreApi) {
+    public GetKeyStoreDetailsService(KeystoreApi keystoreApi, KeystoreCache keystoreCache) {
         this.keystoreApi = Objects.requireNonNull(keystoreApi);
+        this.keystoreCache = Objects.requireNonNull(keystoreCache);
     }
 
     public List<KeyStore> getKeyStores() throws Exception {
@@ -57,7 +59,12 @@ public class GetKeyStoreDetailsService {
         return loadKeyStore(keystoreCertificateConfig);
     }
 
-    private KeyStore loadKeyStore(KeystoreCertificateConfig config) throws KeyStoreException, IOException,
+    private KeyStore loadKeyStore(KeystoreCertificateConfig config) throws Exception {
+        return keystoreCache.get(config.getKeystorePath(), List.of(config.getKeystorePath()),
+                () -> readKeyStore(config));
+    }
+
+    private KeyStore readKeyStore(KeystoreCertificateConfig config) throws KeyStoreException, IOException,
             CertificateException, NoSuchAlgorithmException {
         KeyStore keyStoreLocal = KeyStore.getInstance("JKS");
         try (InputStream is = Files.newInputStream(config.getKeystorePath())) {
@@ -1,27 +1,57 @@
 package com.omb.ocpp.security.certificate.service;
 
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
 import com.omb.ocpp.security.certificate.api.KeystoreApi;
 import com.omb.ocpp.security.certificate.config.KeystoreCertificateConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManagerFactory;
 import java.security.KeyStore;
 import java.util.Objects;
 import java.util.UUID;
 
 public class InitializeSslContextService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InitializeSslContextService.class);
+    // read by JSSE once per JVM, when SSL classes are loaded, supported since JDK 13
+    private static final String SESSION_TICKETS_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+    private static final int SESSION_TICKETS_MIN_JAVA_VERSION = 13;
 
     private final KeystoreApi keystoreApi;
     private final UUID keystoreUUID;
+    private final Config config;
 
-    public InitializeSslContextService(KeystoreApi keystoreApi, UUID keystoreUUID) {
+    public InitializeSslContextService(KeystoreApi keystoreApi, UUID keystoreUUID, Config config) {
         this.keystoreApi = Objects.requireNonNull(keystoreApi);
         this.keystoreUUID = Objects.requireNonNull(keystoreUUID);
+        this.config = Objects.requireNonNull(config);
     }
 
-    public SSLContext execute() throws Exception {
+    /**
+     * Must be called at startup before any SSL class is loaded, later changes of the setting need a restart.
+     * A value passed to JVM with -D takes precedence over the config.
+     */
+    public static void applySessionTicketsSetting(Config config) {
+        String jvmValue = System.getProperty(SESSION_TICKETS_PROPERTY);
+        if (jvmValue != null) {
+            LOGGER.info("{} is ignored, {}={} is set on JVM", ConfigKey.SSL_SESSION_TICKETS_ENABLED.getKey(),
+                    SESSION_TICKETS_PROPERTY, jvmValue);
+            return;
+        }
+        if (Runtime.version().feature() < SESSION_TICKETS_MIN_JAVA_VERSION) {
+            LOGGER.info("{} is ignored, session tickets need Java {}+, running on {}",
+                    ConfigKey.SSL_SESSION_TICKETS_ENABLED.getKey(), SESSION_TICKETS_MIN_JAVA_VERSION,
+                    Runtime.version());
+            return;
+        }
+        System.setProperty(SESSION_TICKETS_PROPERTY, String.valueOf(config.getBoolean(ConfigKey.SSL_SESSION_TICKETS_ENABLED)));
+    }
 
+    public SSLContext execute() throws Exception {
         KeystoreCertificateConfig keyStoreConfig = keystoreApi.getKeystoreCertificateConfig(keystoreUUID);
 
         SSLContext context = SSLContext.getInstance(keyStoreConfig.getKeystoreProtocol());
@@ -36,6 +66,10 @@ public class InitializeSslContextService {
 
         context.init(keyManagerFactory.getKeyManagers(), tmf.getTrustManagers(), null);
 
+        SSLSessionContext sessionContext = context.getServerSessionContext();
+        sessionContext.setSessionCacheSize(config.getInt(ConfigKey.SSL_SESSION_CACHE_SIZE));
+        sessionContext.setSessionTimeout(config.getInt(ConfigKey.SSL_SESSION_TIMEOUT_SECONDS));
+
         return context;
     }
 }
@@ -0,0 +1,103 @@
+package com.omb.ocpp.security.certificate.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps loaded keystores, keystore registry and SSL contexts in memory.
+ * Every entry remembers modification time and size of the files it was built from and is rebuilt when any of them
+ * changes, so reads cost a file stat instead of reading, parsing and decrypting the file.
+ */
+public class KeystoreCache {
+
+    private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    /**
+     * @param key   cache key, e.g. keystore path
+     * @param files files the value is built from
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, List<Path> files, Loader<T> loader) throws Exception {
+        List<FileStamp> stamps = FileStamp.of(files);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.stamps.equals(stamps)) {
+            return (T) entry.value;
+        }
+        T value = loader.load();
+        // stamps taken before load, a file changed during load is detected on next access
+        entries.put(key, new Entry(stamps, value));
+        return value;
+    }
+
+    public void invalidate(Object key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private static class Entry {
+        private final List<FileStamp> stamps;
+        private final Object value;
+
+        private Entry(List<FileStamp> stamps, Object value) {
+            this.stamps = stamps;
+            this.value = value;
+        }
+    }
+
+    private static class FileStamp {
+        private final Path path;
+        private final long lastModified;
+        private final long size;
+
+        private FileStamp(Path path, long lastModified, long size) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        private static List<FileStamp> of(List<Path> files) {
+            return files.stream().map(FileStamp::of).collect(Collectors.toList());
+        }
+
+        private static FileStamp of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(path, attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (IOException e) {
+                return new FileStamp(path, -1, -1);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileStamp fileStamp = (FileStamp) o;
+            return lastModified == fileStamp.lastModified && size == fileStamp.size && path.equals(fileStamp.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified, size);
+        }
+    }
+}
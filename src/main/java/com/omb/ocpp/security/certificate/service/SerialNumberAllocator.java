@@ -0,0 +1,88 @@
+package com.omb.ocpp.security.certificate.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Allocates unique positive serial numbers for issued certificates.
+ * Serials are 127 bit random values. Issued serials are loaded from the index file once and kept in memory, every new
+ * serial is appended to the file so uniqueness holds across restarts.
+ */
+public class SerialNumberAllocator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SerialNumberAllocator.class);
+    private static final int SERIAL_BITS = 127;
+
+    private final Path indexPath;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private Set<BigInteger> issuedSerials;
+    private BufferedWriter indexWriter;
+
+    public SerialNumberAllocator(Path indexPath) {
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * @return serial which was never returned before, recorded in the index before it is handed out
+     */
+    public synchronized BigInteger allocate() throws IOException {
+        open();
+        BigInteger serial;
+        do {
+            serial = new BigInteger(SERIAL_BITS, secureRandom);
+        } while (serial.signum() == 0 || issuedSerials.contains(serial));
+
+        indexWriter.write(serial.toString(16));
+        indexWriter.newLine();
+        indexWriter.flush();
+        issuedSerials.add(serial);
+        return serial;
+    }
+
+    public synchronized long getIssuedCount() throws IOException {
+        open();
+        return issuedSerials.size();
+    }
+
+    private void open() throws IOException {
+        if (indexWriter != null) {
+            return;
+        }
+        Files.createDirectories(indexPath.getParent());
+        if (!Files.exists(indexPath)) {
+            Files.createFile(indexPath);
+        }
+        issuedSerials = loadIndex();
+        indexWriter = Files.newBufferedWriter(indexPath, StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        LOGGER.debug("Loaded {} issued certificate serials from {}", issuedSerials.size(), indexPath);
+    }
+
+    private Set<BigInteger> loadIndex() throws IOException {
+        Set<BigInteger> serials = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    serials.add(new BigInteger(line.trim(), 16));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Skipping malformed serial in {}: {}", indexPath, line);
+                }
+            }
+        }
+        return serials;
+    }
+}
@@ -0,0 +1,66 @@
+package com.omb.ocpp.security.certificate.service;
+
+/**
+ * Immutable view of certificate signing counters, latencies are measured from queueing to signed certificate over
+ * the last 1024 certificates
+ */
+public class SigningStats {
+    private final long signed;
+    private final long failed;
+    private final long rejected;
+    private final int queued;
+    private final double averageMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    SigningStats(long signed, long failed, long rejected, int queued, double averageMillis, double p50Millis,
+                 double p95Millis, double p99Millis, double maxMillis) {
+        this.signed = signed;
+        this.failed = failed;
+        this.rejected = rejected;
+        this.queued = queued;
+        this.averageMillis = averageMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    public long getSigned() {
+        return signed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public double getAverageMillis() {
+        return averageMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP95Millis() {
+        return p95Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+}
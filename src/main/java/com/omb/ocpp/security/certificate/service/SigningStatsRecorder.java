@@ -0,0 +1,56 @@
+package com.omb.ocpp.security.certificate.service;
+
+import java.util.Arrays;
+
+/**
+ * Counts signing outcomes and keeps latencies of the last signed certificates for percentiles
+ */
+class SigningStatsRecorder {
+    private static final int LATENCY_WINDOW = 1024;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+    private int nextLatency;
+    private long signed;
+    private long failed;
+    private long rejected;
+
+    synchronized void recordSigned(long latencyNanos) {
+        signed++;
+        latencies[nextLatency] = latencyNanos;
+        nextLatency = (nextLatency + 1) % LATENCY_WINDOW;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+    }
+
+    synchronized void recordFailed() {
+        failed++;
+    }
+
+    synchronized void recordRejected() {
+        rejected++;
+    }
+
+    synchronized SigningStats snapshot(int queued) {
+        long[] window = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(window);
+        return new SigningStats(signed, failed, rejected, queued,
+                toMillis(average(window)), toMillis(percentile(window, 50)), toMillis(percentile(window, 95)),
+                toMillis(percentile(window, 99)), toMillis(window.length == 0 ? 0 : window[window.length - 1]));
+    }
+
+    private static long average(long[] sorted) {
+        return sorted.length == 0 ? 0 : Arrays.stream(sorted).sum() / sorted.length;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+}
@@ -1,5 +1,7 @@
 package com.omb.ocpp.security.certificate.service;
 
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
 import com.omb.ocpp.security.certificate.api.KeystoreApi;
 import com.omb.ocpp.security.certificate.config.KeystoreCertificateConfig;
 import com.omb.ocpp.security.certificate.config.KeystoreConfigRegistry;
@@ -10,11 +12,15 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.security.auth.x500.X500Principal;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -22,53 +28,74 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static com.omb.ocpp.security.certificate.KeystoreConstants.TRUST_STORE_PATH;
 import static com.omb.ocpp.security.certificate.KeystoreConstants.TRUST_STORE_UUID;
 
+/**
+ * Client certificates trust store.
+ * Mutations are serialized and applied to the in memory alias and subject indexes right away, the file is replaced
+ * atomically by a background writer, so a burst of changes costs one write. Trust store instance shared by
+ * {@link KeystoreApi} is never modified, SSL contexts see the changes once the file is written.
+ */
 @Service
 public class TrustStoreService {
     private static final Logger LOGGER = LoggerFactory.getLogger(TrustStoreService.class);
     private static final String TRUST_STORE_ERROR_MESSAGE = "Could not get certificate from TrustStore";
+    private static final long WRITE_RETRY_DELAY_MILLIS = 5000;
 
     private final KeystoreApi keystoreApi;
+    private final Config config;
+    private final Object lock = new Object();
+    private final Object fileLock = new Object();
+    private final ConcurrentMap<String, X509Certificate> certificatesByAlias = new ConcurrentHashMap<>();
+    private final ConcurrentMap<X500Principal, Set<String>> aliasesBySubject = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trust-store-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
     private KeystoreCertificateConfig trustStoreConfig;
-    private KeyStore trustStore;
+    private boolean writeScheduled;
     private Consumer<Void> certChangeListener = aVoid -> LOGGER.debug("No listeners attached");
 
     @Inject
-    public TrustStoreService(KeystoreApi keystoreApi) {
+    public TrustStoreService(KeystoreApi keystoreApi, Config config) {
         this.keystoreApi = keystoreApi;
+        this.config = config;
     }
 
     @PostConstruct
     public void initialize() {
-        if (!TRUST_STORE_PATH.toFile().exists()) {
-            createTrustStore();
-        } else {
-            loadTruststore();
-        }
+        rebuildIndex(TRUST_STORE_PATH.toFile().exists() ? loadTruststore() : createTrustStore());
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "trust-store-flush"));
 
         System.setProperty("javax.net.ssl.keyStore", TRUST_STORE_PATH.toAbsolutePath().toString());
     }
 
     public void addClientCertificate(X509Certificate certificate) {
-        try (OutputStream os = Files.newOutputStream(TRUST_STORE_PATH)) {
-            String alias = String.format("%s - %s", certificate.getIssuerDN(), certificate.getNotBefore());
-            trustStore.setCertificateEntry(alias, certificate);
-            trustStore.store(os, trustStoreConfig.getKeystorePassword().toCharArray());
-            certChangeListener.accept(null);
-        } catch (IOException | KeyStoreException | NoSuchAlgorithmException | CertificateException e) {
-            LOGGER.error("Could not add certificate to TrustStore");
+        synchronized (lock) {
+            requireTrustStoreConfig();
+            putEntry(certificate);
+            scheduleWrite();
         }
+        certChangeListener.accept(null);
     }
 
     public void addClientCertificate(InputStream inputStream) {
@@ -81,25 +108,176 @@ public class TrustStoreService {
         }
     }
 
-    public void deleteClientCertificate(X509Certificate certificate) {
-        try (OutputStream os = Files.newOutputStream(TRUST_STORE_PATH)) {
-            String alias = String.format("%s - %s", certificate.getIssuerDN(), certificate.getNotBefore());
-            trustStore.deleteEntry(alias);
-            trustStore.store(os, trustStoreConfig.getKeystorePassword().toCharArray());
-            certChangeListener.accept(null);
-        } catch (IOException | KeyStoreException | NoSuchAlgorithmException | CertificateException e) {
-            LOGGER.error("Could not delete certificate from TrustStore");
+    /**
+     * Imports all certificates of a PEM bundle or PKCS#7 structure with a single trust store write
+     *
+     * @return aliases of imported certificates
+     */
+    public List<String> addClientCertificates(InputStream inputStream) throws CertificateException {
+        Collection<? extends Certificate> certificates =
+                CertificateFactory.getInstance("X.509").generateCertificates(inputStream);
+        List<String> aliases = new ArrayList<>();
+        synchronized (lock) {
+            requireTrustStoreConfig();
+            for (Certificate certificate : certificates) {
+                if (certificate instanceof X509Certificate) {
+                    aliases.add(putEntry((X509Certificate) certificate));
+                }
+            }
+            scheduleWrite();
         }
+        LOGGER.info("Imported {} client certificates to TrustStore", aliases.size());
+        certChangeListener.accept(null);
+        return aliases;
+    }
+
+    public void deleteClientCertificate(X509Certificate certificate) {
+        Set<String> aliases = aliasesBySubject.getOrDefault(certificate.getSubjectX500Principal(), Set.of());
+        aliases.stream()
+                .filter(alias -> certificate.equals(certificatesByAlias.get(alias)))
+                .findFirst()
+                .ifPresent(this::deleteClientCertificate);
     }
 
     public void deleteClientCertificate(String alias) {
-        try (OutputStream os = Files.newOutputStream(TRUST_STORE_PATH)) {
-            trustStore.deleteEntry(alias);
-            trustStore.store(os, trustStoreConfig.getKeystorePassword().toCharArray());
-            certChangeListener.accept(null);
-        } catch (IOException | KeyStoreException | NoSuchAlgorithmException | CertificateException e) {
-            LOGGER.error("Could not delete certificate from TrustStore");
+        synchronized (lock) {
+            requireTrustStoreConfig();
+            X509Certificate removed = certificatesByAlias.remove(alias);
+            if (removed == null) {
+                return;
+            }
+            aliasesBySubject.computeIfPresent(removed.getSubjectX500Principal(),
+                    (subject, aliases) -> removeAlias(aliases, alias));
+            scheduleWrite();
+        }
+        certChangeListener.accept(null);
+    }
+
+    /**
+     * @param subject distinguished name, e.g. "CN=CP-1, O=Operator"
+     * @return aliases of client certificates issued to the subject
+     */
+    public List<String> findAliasesBySubject(String subject) {
+        return new ArrayList<>(aliasesBySubject.getOrDefault(new X500Principal(subject), Set.of()));
+    }
+
+    /**
+     * Writes pending changes to the trust store file right away, entries are copied under the lock and serialized
+     * outside of it. Failed write is retried later.
+     */
+    public void flush() {
+        synchronized (fileLock) {
+            Map<String, X509Certificate> entries;
+            synchronized (lock) {
+                if (!writeScheduled) {
+                    return;
+                }
+                writeScheduled = false;
+                entries = new HashMap<>(certificatesByAlias);
+            }
+            byte[] content;
+            try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+                KeyStore trustStore = KeyStore.getInstance("JKS");
+                trustStore.load(null, null);
+                for (Map.Entry<String, X509Certificate> entry : entries.entrySet()) {
+                    trustStore.setCertificateEntry(entry.getKey(), entry.getValue());
+                }
+                trustStore.store(os, trustStoreConfig.getKeystorePassword().toCharArray());
+                content = os.toByteArray();
+            } catch (IOException | KeyStoreException | NoSuchAlgorithmException | CertificateException e) {
+                LOGGER.error("Could not serialize TrustStore", e);
+                retryWrite();
+                return;
+            }
+            try {
+                Path tmp = Files.createTempFile(TRUST_STORE_PATH.getParent(), "trust-store", ".tmp");
+                Files.write(tmp, content);
+                Files.move(tmp, TRUST_STORE_PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                LOGGER.error("Could not write TrustStore", e);
+                retryWrite();
+                return;
+            }
+            keystoreApi.invalidateTrustStore();
+        }
+    }
+
+    private String putEntry(X509Certificate certificate) {
+        String alias = alias(certificate);
+        X509Certificate replaced = certificatesByAlias.put(alias, certificate);
+        if (replaced != null) {
+            aliasesBySubject.computeIfPresent(replaced.getSubjectX500Principal(),
+                    (subject, aliases) -> removeAlias(aliases, alias));
         }
+        aliasesBySubject.compute(certificate.getSubjectX500Principal(), (subject, aliases) -> {
+            Set<String> updated = aliases == null ? new HashSet<>() : new HashSet<>(aliases);
+            updated.add(alias);
+            return Set.copyOf(updated);
+        });
+        return alias;
+    }
+
+    private void scheduleWrite() {
+        scheduleWrite(config.getInt(ConfigKey.TRUST_STORE_WRITE_DELAY_MILLIS));
+    }
+
+    private void retryWrite() {
+        synchronized (lock) {
+            scheduleWrite(WRITE_RETRY_DELAY_MILLIS);
+        }
+    }
+
+    private void scheduleWrite(long delayMillis) {
+        if (!writeScheduled) {
+            writeScheduled = true;
+            writer.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Changes are refused when trust store could not be loaded or created, they could never be written
+     */
+    private void requireTrustStoreConfig() {
+        if (trustStoreConfig == null) {
+            throw new IllegalStateException("TrustStore is not available, see startup log");
+        }
+    }
+
+    private void rebuildIndex(KeyStore trustStore) {
+        certificatesByAlias.clear();
+        aliasesBySubject.clear();
+        if (trustStore == null) {
+            return;
+        }
+        try {
+            Map<X500Principal, Set<String>> subjects = new HashMap<>();
+            for (String alias : Collections.list(trustStore.aliases())) {
+                Certificate certificate = trustStore.getCertificate(alias);
+                if (certificate instanceof X509Certificate) {
+                    X509Certificate x509Certificate = (X509Certificate) certificate;
+                    certificatesByAlias.put(alias, x509Certificate);
+                    subjects.computeIfAbsent(x509Certificate.getSubjectX500Principal(), subject -> new HashSet<>())
+                            .add(alias);
+                }
+            }
+            subjects.forEach((subject, aliases) -> aliasesBySubject.put(subject, Set.copyOf(aliases)));
+        } catch (KeyStoreException e) {
+            LOGGER.error(TRUST_STORE_ERROR_MESSAGE);
+        }
+    }
+
+    private static Set<String> removeAlias(Set<String> aliases, String alias) {
+        Set<String> updated = new HashSet<>(aliases);
+        updated.remove(alias);
+        return updated.isEmpty() ? null : Set.copyOf(updated);
+    }
+
+    /**
+     * Serial number keeps aliases of certificates issued by one CA within the same second apart
+     */
+    private static String alias(X509Certificate certificate) {
+        return String.format("%s - %s - %s", certificate.getIssuerDN(), certificate.getNotBefore(),
+                certificate.getSerialNumber().toString(16));
     }
 
     public String getCertificateAsPem(X509Certificate certificate) {
@@ -114,31 +292,14 @@ public class TrustStoreService {
     }
 
     public Set<X509Certificate> getClientCertificates() {
-        Set<X509Certificate> certificates = new HashSet<>();
-        try {
-            Enumeration<String> aliases = trustStore.aliases();
-            while (aliases.hasMoreElements()) {
-                Certificate certificate = trustStore.getCertificate(aliases.nextElement());
-                if (certificate instanceof X509Certificate) {
-                    certificates.add((X509Certificate) certificate);
-                }
-            }
-        } catch (KeyStoreException e) {
-            LOGGER.error(TRUST_STORE_ERROR_MESSAGE);
-        }
-        return certificates;
+        return new HashSet<>(certificatesByAlias.values());
     }
 
     public Optional<List<String>> listAliases() {
-        try {
-            return Optional.of(Collections.list(trustStore.aliases()));
-        } catch (KeyStoreException e) {
-            LOGGER.error(TRUST_STORE_ERROR_MESSAGE);
-            return Optional.empty();
-        }
+        return Optional.of(new ArrayList<>(certificatesByAlias.keySet()));
     }
 
-    private void createTrustStore() {
+    private KeyStore createTrustStore() {
         try {
             Files.createFile(TRUST_STORE_PATH);
             KeystoreCertificateConfig keystoreCertificateConfig = new KeystoreCertificateConfig.Builder()
@@ -154,21 +315,27 @@ public class TrustStoreService {
             this.trustStoreConfig = keystoreCertificateConfig;
 
             try (OutputStream os = Files.newOutputStream(TRUST_STORE_PATH)) {
-                trustStore = KeyStore.getInstance("JKS");
+                KeyStore trustStore = KeyStore.getInstance("JKS");
                 trustStore.load(null, null);
                 trustStore.store(os, keystoreCertificateConfig.getKeystorePassword().toCharArray());
+                return trustStore;
             }
         } catch (Exception e) {
             LOGGER.error("could not create trust store", e);
+            return null;
         }
     }
 
-    private void loadTruststore() {
+    /**
+     * @return trust store shared by {@link KeystoreApi}, only read to build the indexes
+     */
+    private KeyStore loadTruststore() {
         try {
-            trustStore = keystoreApi.getTrustStore();
             trustStoreConfig = keystoreApi.getTrustStoreCertificateConfig();
+            return keystoreApi.getTrustStore();
         } catch (Exception e) {
             LOGGER.error("could not load TrustStore");
+            return null;
         }
     }
 
@@ -1,5 +1,10 @@
 package com.omb.ocpp.server;
 
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
+import com.omb.ocpp.config.ConfigSnapshot;
+import com.omb.ocpp.server.admission.HandshakeAdmissionController;
+import com.omb.ocpp.server.auth.CredentialStore;
 import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.handshake.ClientHandshake;
@@ -8,28 +13,79 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Optional;
 
 public class HandshakeResolver implements eu.chargetime.ocpp.HandshakeResolver{
     private static final Logger LOGGER = LoggerFactory.getLogger(HandshakeResolver.class);
-    private final String basicPassword;
+    private final Config config;
+    private final HandshakeAdmissionController admissionController;
+    private final CredentialStore credentialStore;
 
-    public HandshakeResolver(String basicPassword) {
-        this.basicPassword = basicPassword;
+    public HandshakeResolver(Config config, HandshakeAdmissionController admissionController,
+                             CredentialStore credentialStore) {
+        this.config = config;
+        this.admissionController = admissionController;
+        this.credentialStore = credentialStore;
     }
 
     public void onHandshake(ClientHandshake request) throws InvalidDataException {
-        String authString = request.getFieldValue("Authorization");
-        if (basicPassword != null && !basicPassword.isEmpty() && authString != null && !authString.isEmpty() && !decode(authString).equals(basicPassword)) {
-            LOGGER.error("Handshake failed because passwords do not match provided: {} expected: {}",
-                    decode(authString), basicPassword);
+        String resourceDescriptor = request.getResourceDescriptor();
+        if (!admissionController.tryAdmit(resourceDescriptor)) {
+            throw new InvalidDataException(CloseFrame.TRY_AGAIN_LATER, "Server is busy, try again later");
+        }
+        try {
+            authorize(chargePointIdentifier(resourceDescriptor), request.getFieldValue("Authorization"));
+        } catch (InvalidDataException e) {
+            admissionController.release(resourceDescriptor);
+            throw e;
+        }
+    }
+
+    private void authorize(String identifier, String authString) throws InvalidDataException {
+        Optional<String[]> credentials = decode(authString);
+        // read on every handshake, so password changes apply to new connections without restart
+        ConfigSnapshot snapshot = config.getSnapshot();
+        String basicPassword = snapshot.getString(ConfigKey.OCPP_AUTH_PASSWORD);
+        if (credentialStore.hasCredential(identifier)) {
+            if (credentials.isEmpty() || !identifier.equals(credentials.get()[0])
+                    || !credentialStore.verify(identifier, credentials.get()[1])) {
+                LOGGER.error("Handshake of {} failed because credentials do not match", identifier);
+                throw new InvalidDataException(CloseFrame.REFUSE, "Authorization Failed!");
+            }
+        } else if (snapshot.getBoolean(ConfigKey.OCPP_AUTH_CREDENTIALS_REQUIRED)) {
+            LOGGER.error("Handshake of {} failed because charge point has no credentials", identifier);
+            throw new InvalidDataException(CloseFrame.REFUSE, "Authorization Failed!");
+        } else if (basicPassword != null && !basicPassword.isEmpty() && credentials.isPresent()
+                && !credentials.get()[1].equals(basicPassword)) {
+            LOGGER.error("Handshake of {} failed because password does not match", identifier);
             throw new InvalidDataException(CloseFrame.REFUSE, "Authorization Failed!");
         }
     }
 
-    private String decode(String basicPassword) {
-        String base64Credentials = basicPassword.substring("Basic".length()).trim();
-        byte[] credDecoded = Base64.getDecoder().decode(base64Credentials);
-        return new String(credDecoded, StandardCharsets.UTF_8).split(":", 2)[1];
+    /**
+     * @return last segment of websocket path, e.g. "CP001" for "/ocpp/CP001"
+     */
+    private static String chargePointIdentifier(String resourceDescriptor) {
+        if (resourceDescriptor == null) {
+            return "";
+        }
+        return resourceDescriptor.substring(resourceDescriptor.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @return user name and password of Basic authorization header
+     */
+    private static Optional<String[]> decode(String authString) {
+        if (authString == null || !authString.regionMatches(true, 0, "Basic", 0, "Basic".length())) {
+            return Optional.empty();
+        }
+        try {
+            byte[] credDecoded = Base64.getDecoder().decode(authString.substring("Basic".length()).trim());
+            String[] credentials = new String(credDecoded, StandardCharsets.UTF_8).split(":", 2);
+            return credentials.length == 2 ? Optional.of(credentials) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
 
 }
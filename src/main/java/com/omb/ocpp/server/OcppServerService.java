@@ -3,12 +3,16 @@ package com.omb.ocpp.server;
 import com.omb.ocpp.config.Config;
 import com.omb.ocpp.config.ConfigKey;
 import com.omb.ocpp.security.BaseWssFactoryBuilderWrapper;
+import com.omb.ocpp.security.TlsSessionMetrics;
+import com.omb.ocpp.server.admission.HandshakeAdmissionController;
+import com.omb.ocpp.server.auth.CredentialStore;
 import com.omb.ocpp.server.handler.CoreEventHandler;
 import com.omb.ocpp.server.handler.FirmwareManagementEventHandler;
 import com.omb.ocpp.server.handler.ISO15118EventHandler;
 import com.omb.ocpp.server.iso15118.ISO15118Profile;
 import com.omb.ocpp.server.security.spec16ed2.profile.SecuritySpec16Profile;
 import com.omb.ocpp.server.security.spec16ed2.handler.SecuritySpec16EventHandler;
+import com.omb.ocpp.server.trace.MessageTracer;
 import eu.chargetime.ocpp.JSONConfiguration;
 import eu.chargetime.ocpp.JSONServer;
 import eu.chargetime.ocpp.NotConnectedException;
@@ -24,7 +28,6 @@ import eu.chargetime.ocpp.feature.profile.ServerSmartChargingProfile;
 import eu.chargetime.ocpp.model.Confirmation;
 import eu.chargetime.ocpp.model.Request;
 import eu.chargetime.ocpp.model.SessionInformation;
-import eu.chargetime.ocpp.wss.WssFactoryBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.jvnet.hk2.annotations.Service;
@@ -32,11 +35,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.net.ssl.SSLContext;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
@@ -49,8 +55,13 @@ public class OcppServerService {
     private static final Logger LOGGER = LoggerFactory.getLogger(OcppServerService.class);
 
     private JSONServer server;
-    private Map<UUID, SessionInformation> sessionList = new HashMap<>();
-    private SessionsListener sessionsListener = new StubSessionListener();
+    private final SessionRegistry sessionRegistry;
+    private final MessageTracer messageTracer;
+    private final HandshakeAdmissionController admissionController;
+    private final CredentialStore credentialStore;
+    private final TlsSessionMetrics tlsSessionMetrics;
+    private volatile SessionsListener sessionsListener = new StubSessionListener();
+    private final SessionsEventCoalescer sessionsEvents;
     private ServerCoreProfile coreProfile;
     private Profile firmwareProfile;
     private Profile remoteTriggerProfile;
@@ -59,6 +70,7 @@ public class OcppServerService {
     private Profile smartChargingProfile;
     private Profile securitySpec16Profile;
     private SslContextConfig sslContextConfig;
+    private volatile BaseWssFactoryBuilderWrapper wssFactoryBuilder;
     private Config config;
 
     @Inject
@@ -67,9 +79,21 @@ public class OcppServerService {
             CoreEventHandler coreEventHandler,
             ISO15118EventHandler iso15118EventHandler,
             SecuritySpec16EventHandler securitySpec16EventHandler,
+            SessionRegistry sessionRegistry,
+            MessageTracer messageTracer,
+            HandshakeAdmissionController admissionController,
+            CredentialStore credentialStore,
+            TlsSessionMetrics tlsSessionMetrics,
             Config config) {
 
         this.config = config;
+        this.sessionRegistry = sessionRegistry;
+        this.messageTracer = messageTracer;
+        this.admissionController = admissionController;
+        this.credentialStore = credentialStore;
+        this.tlsSessionMetrics = tlsSessionMetrics;
+        this.sessionsEvents = new SessionsEventCoalescer(() -> sessionsListener,
+                () -> config.getInt(ConfigKey.SESSIONS_EVENTS_COALESCING_MILLIS));
         this.coreProfile = new ServerCoreProfile(coreEventHandler);
         this.firmwareProfile = new ServerFirmwareManagementProfile(firmwareManagementEventHandler);
         this.remoteTriggerProfile = new ServerRemoteTriggerProfile();
@@ -124,24 +148,27 @@ public class OcppServerService {
                 // sessionIndex is used to send messages.
                 LOGGER.debug(String.format("New session: %s information: %s", sessionIndex,
                         information.getIdentifier()));
-                sessionList.put(sessionIndex, information);
-                sessionsListener.onSessionsCountChange(sessionList);
+                admissionController.release(information.getIdentifier());
+                sessionRegistry.register(sessionIndex, information);
+                sessionsEvents.added(sessionIndex, information);
             }
 
             @Override
             public void lostSession(UUID sessionIndex) {
                 LOGGER.debug("Session {} lost connection", sessionIndex);
-                sessionList.remove(sessionIndex);
-                sessionsListener.onSessionsCountChange(sessionList);
+                sessionRegistry.unregister(sessionIndex)
+                        .ifPresent(information -> sessionsEvents.removed(sessionIndex, information));
             }
         });
     }
 
     public void stop() {
         server.close();
-        sessionList.clear();
-        sessionsListener.onSessionsCountChange(sessionList);
+        Map<UUID, SessionInformation> sessions = sessionRegistry.snapshot();
+        sessionRegistry.clear();
+        sessionsEvents.removedAll(sessions);
         server = null;
+        wssFactoryBuilder = null;
     }
 
     public boolean isRunning() {
@@ -149,38 +176,38 @@ public class OcppServerService {
     }
 
     public void send(Request request, String sessionToken) {
-        String identifier = sessionToken.split(" ")[0];
-        String address = sessionToken.split(" ")[1]
-                .replace("(", "").replace(")", "");
-
-        Optional<UUID> sessionUUID = sessionList.entrySet().stream()
-                .filter(entry -> entry.getValue().getIdentifier().equals(identifier)
-                        && entry.getValue().getAddress().toString().equals(address))
-                .map(Map.Entry::getKey)
-                .findAny();
+        UUID sessionUUID = findSessionUUIDByToken(sessionToken)
+                .orElseThrow(() -> new IllegalArgumentException(String.format("Could not find " +
+                        "client by session token: %s", sessionToken)));
+        send(request, sessionUUID, sessionToken);
+    }
 
+    /**
+     * Sends request to the session, response or failure is only logged
+     *
+     * @param recipient client description used in logs
+     */
+    public void send(Request request, UUID sessionUuid, String recipient) {
         try {
-            LOGGER.debug("Sending message: {} to {}", toJson(request), sessionToken);
-            server.send(sessionUUID.orElseThrow(() -> new IllegalArgumentException(String.format("Could not find " +
-                    "client by session token: %s", sessionToken))), request)
-                    .whenComplete((confirmation, throwable) -> {
-                        if (throwable == null) {
-                            LOGGER.debug("Client responded with: {}", ToStringBuilder.reflectionToString(confirmation, ToStringStyle.SHORT_PREFIX_STYLE));
-                        } else {
-                            LOGGER.error("Error parsing response from client", throwable);
-                        }
-                    });
+            sendTraced(sessionUuid, request, recipient)
+                    .whenComplete(OcppServerService::logResponse);
         } catch (OccurenceConstraintException | UnsupportedFeatureException | NotConnectedException e) {
-            LOGGER.error(String.format("Could not send message: %s to %s", toJson(request), sessionToken), e);
+            LOGGER.error(String.format("Could not send message: %s to %s", toJson(request), recipient), e);
         }
     }
 
-    public Map<UUID, CompletionStage<Confirmation>> sendToAll(Request request) throws NotConnectedException,
-            OccurenceConstraintException,
-            UnsupportedFeatureException {
+    /**
+     * Sends request to every connected client, failure to send to one client does not affect the others,
+     * it is reported through the corresponding completion stage
+     */
+    public Map<UUID, CompletionStage<Confirmation>> sendToAll(Request request) {
         Map<UUID, CompletionStage<Confirmation>> responses = new HashMap<>();
-        for (Map.Entry<UUID, SessionInformation> entry : sessionList.entrySet()) {
-            responses.put(entry.getKey(), server.send(entry.getKey(), request));
+        for (UUID sessionUuid : sessionRegistry.getSessionUUIDs()) {
+            try {
+                responses.put(sessionUuid, sendTraced(sessionUuid, request, sessionUuid.toString()));
+            } catch (OccurenceConstraintException | UnsupportedFeatureException | NotConnectedException e) {
+                responses.put(sessionUuid, CompletableFuture.failedFuture(e));
+            }
         }
         return responses;
     }
@@ -188,14 +215,18 @@ public class OcppServerService {
     public CompletionStage<Confirmation> sendToFirstClient(Request request) throws NotConnectedException,
             OccurenceConstraintException,
             UnsupportedFeatureException {
-        return server.send(sessionList.keySet().iterator().next(), request);
+        UUID sessionUuid = sessionRegistry.getSessionUUIDs().iterator().next();
+        return sendTraced(sessionUuid, request, sessionUuid.toString());
     }
 
     public CompletionStage<Confirmation> send(Request request) throws NotConnectedException,
             OccurenceConstraintException,
             UnsupportedFeatureException {
-        if (sessionList.size() == 1) {
-            return server.send(sessionList.keySet().iterator().next(), request);
+        Set<UUID> sessionUUIDs = sessionRegistry.getSessionUUIDs();
+        Iterator<UUID> iterator = sessionUUIDs.iterator();
+        if (sessionUUIDs.size() == 1 && iterator.hasNext()) {
+            UUID sessionUuid = iterator.next();
+            return sendTraced(sessionUuid, request, sessionUuid.toString());
         } else {
             CompletableFuture<Confirmation> errorConfirmation = new CompletableFuture<>();
             errorConfirmation.completeExceptionally(new Exception("There must to be exactly 1 client to be " +
@@ -207,35 +238,52 @@ public class OcppServerService {
     public CompletionStage<Confirmation> send(UUID uuid, Request request) throws NotConnectedException,
             OccurenceConstraintException,
             UnsupportedFeatureException {
-        return server.send(uuid, request);
+        return sendTraced(uuid, request, uuid.toString());
     }
 
-    public CompletionStage<Confirmation> sendToClient(Request request, String username) {
+    /**
+     * Every request sent to a client goes through here, so it is traced and journaled
+     */
+    private CompletionStage<Confirmation> sendTraced(UUID sessionUuid, Request request, String recipient)
+            throws NotConnectedException, OccurenceConstraintException, UnsupportedFeatureException {
+        messageTracer.traceSending(sessionUuid, request, recipient);
+        CompletionStage<Confirmation> confirmation = server.send(sessionUuid, request);
+        messageTracer.traceSent(sessionUuid, request);
+        return confirmation;
+    }
 
-        Optional<UUID> sessionUUID = sessionList.entrySet().stream()
-                .filter(entry -> entry.getValue().getIdentifier().equals("/" + username))
-                .map(Map.Entry::getKey)
-                .findAny();
+    public CompletionStage<Confirmation> sendToClient(Request request, String username) {
+        UUID sessionUUID = getSessionUUID(username)
+                .orElseThrow(() -> new IllegalArgumentException(String.format("Could not find " +
+                        "client by username: %s", username)));
 
         try {
-            LOGGER.debug("Sending message: {} to {}", toJson(request), username);
-            return server.send(sessionUUID.orElseThrow(() -> new IllegalArgumentException(String.format("Could not find " +
-                    "client by username: %s", username))), request)
-                    .whenComplete((confirmation, throwable) -> {
-                        if (throwable == null) {
-                            LOGGER.debug("Client responded with: {}", ToStringBuilder.reflectionToString(confirmation, ToStringStyle.SHORT_PREFIX_STYLE));
-                        } else {
-                            LOGGER.error("Error parsing response from client", throwable);
-                        }
-                    });
+            return sendTraced(sessionUUID, request, username)
+                    .whenComplete(OcppServerService::logResponse);
         } catch (OccurenceConstraintException | UnsupportedFeatureException | NotConnectedException e) {
             LOGGER.error(String.format("Could not send message: %s to %s", toJson(request), username), e);
             return CompletableFuture.failedFuture(e);
         }
     }
 
+    /**
+     * @param username charge point name, as used in the connection url
+     * @return uuid of the session opened by given charge point
+     */
+    public Optional<UUID> getSessionUUID(String username) {
+        return sessionRegistry.findByIdentifier("/" + username);
+    }
+
+    /**
+     * @param username charge point name, as used in the connection url
+     * @return session opened by given charge point
+     */
+    public Optional<SessionInformation> getSessionInformation(String username) {
+        return getSessionUUID(username).flatMap(sessionRegistry::get);
+    }
+
     public Map<UUID, SessionInformation> getSessionList() {
-        return sessionList;
+        return sessionRegistry.snapshot();
     }
 
     public void setSessionsListener(SessionsListener sessionsListener) {
@@ -243,12 +291,36 @@ public class OcppServerService {
     }
 
     public Optional<SessionInformation> getSessionInformation(UUID sessionUuid) {
-        return Optional.ofNullable(sessionList.get(sessionUuid));
+        return sessionRegistry.get(sessionUuid);
+    }
+
+    /**
+     * Resolves session token in format used by GUI: "identifier (address)"
+     */
+    private Optional<UUID> findSessionUUIDByToken(String sessionToken) {
+        int separator = sessionToken.indexOf(' ');
+        if (separator < 0) {
+            return sessionRegistry.findByIdentifier(sessionToken);
+        }
+        String identifier = sessionToken.substring(0, separator);
+        String address = sessionToken.substring(separator + 1).replace("(", "").replace(")", "");
+        return sessionRegistry.findByAddress(address)
+                .filter(uuid -> sessionRegistry.get(uuid)
+                        .map(information -> identifier.equals(information.getIdentifier()))
+                        .orElse(false));
+    }
+
+    private static void logResponse(Confirmation confirmation, Throwable throwable) {
+        if (throwable == null) {
+            LOGGER.debug("Client responded with: {}", ToStringBuilder.reflectionToString(confirmation, ToStringStyle.SHORT_PREFIX_STYLE));
+        } else {
+            LOGGER.error("Error parsing response from client", throwable);
+        }
     }
 
     private JSONServer initializeJsonServer() {
         try {
-            HandshakeResolver handshakeResolver = new HandshakeResolver(config.getString(ConfigKey.OCPP_AUTH_PASSWORD));
+            HandshakeResolver handshakeResolver = new HandshakeResolver(config, admissionController, credentialStore);
             return new JSONServer(coreProfile, handshakeResolver);
         } catch (Exception e) {
             LOGGER.error("Error", e);
@@ -258,11 +330,12 @@ public class OcppServerService {
 
     private JSONServer initializeJsonSslServer() {
         try {
-            HandshakeResolver handshakeResolver = new HandshakeResolver(config.getString(ConfigKey.OCPP_AUTH_PASSWORD));
-            WssFactoryBuilder wssFactoryBuilder = new BaseWssFactoryBuilderWrapper().
+            HandshakeResolver handshakeResolver = new HandshakeResolver(config, admissionController, credentialStore);
+            wssFactoryBuilder = new BaseWssFactoryBuilderWrapper().
                     setCiphers(sslContextConfig.getCiphers()).
                     setClientAuthenticationNeeded(sslContextConfig.isClientAuthenticationNeeded()).
-                    setSslContext(sslContextConfig.getSslContext());
+                    setSslContext(sslContextConfig.getSslContext()).
+                    setSessionMetrics(tlsSessionMetrics);
             return new JSONServer(coreProfile, wssFactoryBuilder, JSONConfiguration.get(), handshakeResolver);
         } catch (Exception e) {
             LOGGER.error("Error", e);
@@ -270,6 +343,22 @@ public class OcppServerService {
         }
     }
 
+    /**
+     * Replaces SSL context of running SSL server, charge points connected before keep their sessions,
+     * only new connections are established with the new context
+     *
+     * @throws IllegalArgumentException if the context supports none of the configured cipher suites
+     */
+    public void swapSslContext(SSLContext sslContext) {
+        BaseWssFactoryBuilderWrapper builder = wssFactoryBuilder;
+        if (!isRunning() || builder == null) {
+            throw new IllegalStateException("SSL server is not running");
+        }
+        builder.swapSslContext(sslContext);
+        sslContextConfig.setSslContext(sslContext);
+        LOGGER.info("SSL context replaced, new connections will use it");
+    }
+
     public void setSslContextConfig(SslContextConfig sslContextConfig) {
         this.sslContextConfig = sslContextConfig;
     }
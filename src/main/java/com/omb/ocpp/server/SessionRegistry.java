@@ -0,0 +1,130 @@
+package com.omb.ocpp.server;
+
+import eu.chargetime.ocpp.model.SessionInformation;
+import org.jvnet.hk2.annotations.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread safe registry of connected charge points.
+ * Sessions are written from the websocket callbacks and read from REST and GUI threads, reads never block.
+ * Besides lookup by session UUID, sessions are indexed by identifier and by remote address.
+ */
+@Service
+public class SessionRegistry {
+
+    private final ConcurrentMap<UUID, SessionInformation> sessions = new ConcurrentHashMap<>();
+    // every live session of a key, oldest first, lists are immutable and replaced atomically per key
+    private final ConcurrentMap<String, List<UUID>> identifierIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<UUID>> addressIndex = new ConcurrentHashMap<>();
+
+    public void register(UUID sessionUuid, SessionInformation information) {
+        sessions.put(sessionUuid, information);
+        identifierKey(information).ifPresent(key -> identifierIndex.compute(key,
+                (k, sessionUuids) -> with(sessionUuids, sessionUuid)));
+        addressKey(information).ifPresent(key -> addressIndex.compute(key,
+                (k, sessionUuids) -> with(sessionUuids, sessionUuid)));
+    }
+
+    public Optional<SessionInformation> unregister(UUID sessionUuid) {
+        SessionInformation information = sessions.remove(sessionUuid);
+        if (information == null) {
+            return Optional.empty();
+        }
+        // other sessions of the same charge point stay indexed, lookups fall back to them
+        identifierKey(information).ifPresent(key -> identifierIndex.computeIfPresent(key,
+                (k, sessionUuids) -> without(sessionUuids, sessionUuid)));
+        addressKey(information).ifPresent(key -> addressIndex.computeIfPresent(key,
+                (k, sessionUuids) -> without(sessionUuids, sessionUuid)));
+        return Optional.of(information);
+    }
+
+    public void clear() {
+        sessions.clear();
+        identifierIndex.clear();
+        addressIndex.clear();
+    }
+
+    public Optional<SessionInformation> get(UUID sessionUuid) {
+        return Optional.ofNullable(sessions.get(sessionUuid));
+    }
+
+    public boolean contains(UUID sessionUuid) {
+        return sessions.containsKey(sessionUuid);
+    }
+
+    public Optional<UUID> findByIdentifier(String identifier) {
+        return identifier == null ? Optional.empty() : validated(identifierIndex.get(identifier));
+    }
+
+    public Optional<UUID> findByAddress(String address) {
+        return address == null ? Optional.empty() : validated(addressIndex.get(address));
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public boolean isEmpty() {
+        return sessions.isEmpty();
+    }
+
+    /**
+     * @return weakly consistent live view of session UUIDs, safe to iterate while sessions come and go
+     */
+    public Set<UUID> getSessionUUIDs() {
+        return Collections.unmodifiableSet(sessions.keySet());
+    }
+
+    /**
+     * @return point in time copy of all sessions
+     */
+    public Map<UUID, SessionInformation> snapshot() {
+        return Collections.unmodifiableMap(new HashMap<>(sessions));
+    }
+
+    /**
+     * @return the newest session of the key which is still registered
+     */
+    private Optional<UUID> validated(List<UUID> sessionUuids) {
+        if (sessionUuids == null) {
+            return Optional.empty();
+        }
+        for (int i = sessionUuids.size() - 1; i >= 0; i--) {
+            if (sessions.containsKey(sessionUuids.get(i))) {
+                return Optional.of(sessionUuids.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static List<UUID> with(List<UUID> sessionUuids, UUID sessionUuid) {
+        List<UUID> result = new ArrayList<>(sessionUuids == null ? List.of() : sessionUuids);
+        result.remove(sessionUuid);
+        result.add(sessionUuid);
+        return List.copyOf(result);
+    }
+
+    private static List<UUID> without(List<UUID> sessionUuids, UUID sessionUuid) {
+        List<UUID> result = new ArrayList<>(sessionUuids);
+        result.remove(sessionUuid);
+        return result.isEmpty() ? null : List.copyOf(result);
+    }
+
+    private static Optional<String> identifierKey(SessionInformation information) {
+        return Optional.ofNullable(information.getIdentifier());
+    }
+
+    private static Optional<String> addressKey(SessionInformation information) {
+        return Optional.ofNullable(information.getAddress()).map(Object::toString);
+    }
+}
@@ -0,0 +1,89 @@
+package com.omb.ocpp.server;
+
+import eu.chargetime.ocpp.model.SessionInformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Collects session connects and disconnects and delivers them to {@link SessionsListener} as one batch per window,
+ * so a mass reconnect results in a few listener calls instead of one call per charge point
+ */
+class SessionsEventCoalescer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionsEventCoalescer.class);
+
+    private final Supplier<SessionsListener> listener;
+    private final LongSupplier windowMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sessions-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Map<UUID, SessionInformation> added = new LinkedHashMap<>();
+    private Map<UUID, SessionInformation> removed = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    SessionsEventCoalescer(Supplier<SessionsListener> listener, LongSupplier windowMillis) {
+        this.listener = listener;
+        this.windowMillis = windowMillis;
+    }
+
+    synchronized void added(UUID sessionUuid, SessionInformation information) {
+        added.put(sessionUuid, information);
+        scheduleFlush();
+    }
+
+    synchronized void removed(UUID sessionUuid, SessionInformation information) {
+        if (added.remove(sessionUuid) == null) {
+            removed.put(sessionUuid, information);
+        }
+        scheduleFlush();
+    }
+
+    synchronized void removedAll(Map<UUID, SessionInformation> sessions) {
+        sessions.forEach((sessionUuid, information) -> {
+            if (added.remove(sessionUuid) == null) {
+                removed.put(sessionUuid, information);
+            }
+        });
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(this::flush, Math.max(0, windowMillis.getAsLong()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<UUID, SessionInformation> addedBatch;
+        Map<UUID, SessionInformation> removedBatch;
+        synchronized (this) {
+            addedBatch = added;
+            removedBatch = removed;
+            added = new LinkedHashMap<>();
+            removed = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        if (addedBatch.isEmpty() && removedBatch.isEmpty()) {
+            return;
+        }
+        try {
+            listener.get().onSessionsChanged(Collections.unmodifiableMap(addedBatch),
+                    Collections.unmodifiableMap(removedBatch));
+        } catch (Exception e) {
+            LOGGER.error("Sessions listener failed", e);
+        }
+    }
+}
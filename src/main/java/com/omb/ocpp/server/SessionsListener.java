@@ -8,14 +8,21 @@ import java.util.Map;
 import java.util.UUID;
 
 public interface SessionsListener {
-    void onSessionsCountChange(Map<UUID, SessionInformation> sessions);
+    /**
+     * Receives sessions connected and disconnected since previous call, changes are batched within
+     * 'sessions.events.coalescing.millis' window. Session that connected and disconnected within the same window
+     * is not reported at all.
+     */
+    void onSessionsChanged(Map<UUID, SessionInformation> addedSessions, Map<UUID, SessionInformation> removedSessions);
 }
 
 class StubSessionListener implements SessionsListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(StubSessionListener.class);
 
     @Override
-    public void onSessionsCountChange(Map<UUID, SessionInformation> sessions) {
-        LOGGER.warn("Sessions count changed, size: {}, no action performed", sessions.size());
+    public void onSessionsChanged(Map<UUID, SessionInformation> addedSessions,
+                                  Map<UUID, SessionInformation> removedSessions) {
+        LOGGER.warn("Sessions changed, added: {}, removed: {}, no action performed", addedSessions.size(),
+                removedSessions.size());
     }
 }
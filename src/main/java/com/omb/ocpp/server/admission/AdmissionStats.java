@@ -0,0 +1,51 @@
+package com.omb.ocpp.server.admission;
+
+/**
+ * Immutable view of handshake admission counters, returned by REST API
+ */
+public class AdmissionStats {
+    private final int pending;
+    private final long admitted;
+    private final long rejectedByRate;
+    private final long rejectedByPending;
+    private final int ratePerSecond;
+    private final int maxPending;
+
+    AdmissionStats(int pending, long admitted, long rejectedByRate, long rejectedByPending, int ratePerSecond,
+                   int maxPending) {
+        this.pending = pending;
+        this.admitted = admitted;
+        this.rejectedByRate = rejectedByRate;
+        this.rejectedByPending = rejectedByPending;
+        this.ratePerSecond = ratePerSecond;
+        this.maxPending = maxPending;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    public long getRejectedByRate() {
+        return rejectedByRate;
+    }
+
+    public long getRejectedByPending() {
+        return rejectedByPending;
+    }
+
+    public long getRejected() {
+        return rejectedByRate + rejectedByPending;
+    }
+
+    public int getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+}
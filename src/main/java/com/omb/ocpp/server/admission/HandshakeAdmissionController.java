@@ -0,0 +1,102 @@
+package com.omb.ocpp.server.admission;
+
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
+import org.jvnet.hk2.annotations.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits websocket handshakes during reconnect storms.
+ * A handshake is admitted when token bucket allows it (handshake.rate.per.second) and the number of admitted
+ * handshakes, which did not turn into OCPP session yet, is below handshake.max.pending.
+ * Pending handshakes are released when session is opened, or after handshake.pending.timeout.seconds.
+ */
+@Service
+public class HandshakeAdmissionController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HandshakeAdmissionController.class);
+
+    private final Config config;
+    /**
+     * Charge point identifier to admission time in nanos, in admission order
+     */
+    private final Map<String, Long> pending = new LinkedHashMap<>();
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long admitted;
+    private long rejectedByRate;
+    private long rejectedByPending;
+
+    @Inject
+    public HandshakeAdmissionController(Config config) {
+        this.config = config;
+        this.tokens = Math.max(1, config.getInt(ConfigKey.HANDSHAKE_RATE_PER_SECOND));
+    }
+
+    /**
+     * @param identifier charge point identifier (websocket resource descriptor)
+     * @return true if handshake may proceed, caller has to refuse the connection otherwise
+     */
+    public synchronized boolean tryAdmit(String identifier) {
+        int ratePerSecond = config.getInt(ConfigKey.HANDSHAKE_RATE_PER_SECOND);
+        int maxPending = config.getInt(ConfigKey.HANDSHAKE_MAX_PENDING);
+        long now = System.nanoTime();
+        expirePending(now);
+        refillTokens(now, ratePerSecond);
+
+        if (maxPending > 0 && !pending.containsKey(identifier) && pending.size() >= maxPending) {
+            rejectedByPending++;
+            LOGGER.debug("Handshake of {} rejected, {} handshakes pending", identifier, pending.size());
+            return false;
+        }
+        if (ratePerSecond > 0 && tokens < 1) {
+            rejectedByRate++;
+            LOGGER.debug("Handshake of {} rejected, rate limit {}/s reached", identifier, ratePerSecond);
+            return false;
+        }
+        if (ratePerSecond > 0) {
+            tokens--;
+        }
+        admitted++;
+        pending.remove(identifier);
+        pending.put(identifier, now);
+        return true;
+    }
+
+    /**
+     * Releases pending handshake of the charge point, called when OCPP session is opened or handshake is refused
+     */
+    public synchronized void release(String identifier) {
+        if (identifier != null) {
+            pending.remove(identifier);
+        }
+    }
+
+    public synchronized AdmissionStats getStats() {
+        expirePending(System.nanoTime());
+        return new AdmissionStats(pending.size(), admitted, rejectedByRate, rejectedByPending,
+                config.getInt(ConfigKey.HANDSHAKE_RATE_PER_SECOND), config.getInt(ConfigKey.HANDSHAKE_MAX_PENDING));
+    }
+
+    private void refillTokens(long now, int ratePerSecond) {
+        if (ratePerSecond > 0) {
+            // bucket holds one second worth of tokens, that is the allowed burst
+            tokens = Math.min(ratePerSecond, tokens + (now - lastRefillNanos) * ratePerSecond / 1_000_000_000d);
+        }
+        lastRefillNanos = now;
+    }
+
+    private void expirePending(long now) {
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(config.getInt(ConfigKey.HANDSHAKE_PENDING_TIMEOUT_SECONDS));
+        Iterator<Long> admissionTimes = pending.values().iterator();
+        while (admissionTimes.hasNext() && now - admissionTimes.next() > timeoutNanos) {
+            admissionTimes.remove();
+        }
+    }
+}
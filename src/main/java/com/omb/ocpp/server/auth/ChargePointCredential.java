@@ -0,0 +1,37 @@
+package com.omb.ocpp.server.auth;
+
+/**
+ * Salted PBKDF2 hash of charge point Basic auth password, as stored in credentials file
+ */
+public class ChargePointCredential {
+    private String identifier;
+    private String salt;
+    private String hash;
+    private int iterations;
+
+    public ChargePointCredential() {
+    }
+
+    ChargePointCredential(String identifier, String salt, String hash, int iterations) {
+        this.identifier = identifier;
+        this.salt = salt;
+        this.hash = hash;
+        this.iterations = iterations;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getSalt() {
+        return salt;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+}
@@ -0,0 +1,25 @@
+package com.omb.ocpp.server.auth;
+
+/**
+ * Request body of set-charge-point-password, password is never passed in the url so it doesn't end up in logs
+ */
+public class ChargePointPassword {
+    private String identifier;
+    private String password;
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public void setIdentifier(String identifier) {
+        this.identifier = identifier;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
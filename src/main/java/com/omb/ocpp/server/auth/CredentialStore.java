@@ -0,0 +1,217 @@
+package com.omb.ocpp.server.auth;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.jvnet.hk2.annotations.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.omb.ocpp.gui.Application.OCPP_SERVER_HOME;
+
+/**
+ * Per charge point Basic auth credentials, stored as salted PBKDF2 hashes in $OCPP_SERVER_HOME/credentials.json.
+ * Successful verifications are remembered as SHA-256 digest of the password, so repeated handshakes of the same
+ * charge point skip the expensive hash. The file is reloaded when it changes on disk.
+ */
+@Service
+public class CredentialStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CredentialStore.class);
+    public static final Path CREDENTIALS_PATH = Paths.get(OCPP_SERVER_HOME, "credentials.json");
+    private static final String HASH_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int HASH_ITERATIONS = 10_000;
+    private static final int HASH_LENGTH_BITS = 256;
+    private static final int SALT_LENGTH_BYTES = 16;
+    private static final long RELOAD_CHECK_SECONDS = 5;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private volatile Map<String, ChargePointCredential> credentials = Map.of();
+    private final ConcurrentMap<String, byte[]> verifiedDigests = new ConcurrentHashMap<>();
+    private long loadedLastModified = -1;
+    // file exists but could not be read, it must not be overwritten with what is in memory
+    private boolean loadFailed;
+    private ScheduledExecutorService reloadExecutor;
+
+    /**
+     * Loads credentials file and starts watching it for changes, runs when the store is created so neither handshakes
+     * nor REST changes ever see an empty store in place of the file
+     */
+    @PostConstruct
+    public synchronized void load() {
+        reload();
+        if (reloadExecutor == null) {
+            reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "credentials-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloadExecutor.scheduleWithFixedDelay(this::reloadIfModified, RELOAD_CHECK_SECONDS, RELOAD_CHECK_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean hasCredential(String identifier) {
+        return credentials.containsKey(identifier);
+    }
+
+    public int size() {
+        return credentials.size();
+    }
+
+    /**
+     * @return true if password matches stored credential, false if it does not or charge point has no credential
+     */
+    public boolean verify(String identifier, String password) {
+        ChargePointCredential credential = credentials.get(identifier);
+        if (credential == null || password == null) {
+            return false;
+        }
+        byte[] digest = sha256(password);
+        byte[] verifiedDigest = verifiedDigests.get(identifier);
+        if (verifiedDigest != null && MessageDigest.isEqual(verifiedDigest, digest)) {
+            return true;
+        }
+        boolean matches = MessageDigest.isEqual(Base64.getDecoder().decode(credential.getHash()),
+                pbkdf2(password, Base64.getDecoder().decode(credential.getSalt()), credential.getIterations()));
+        if (matches) {
+            verifiedDigests.put(identifier, digest);
+            if (credentials.get(identifier) != credential) {
+                // credentials were reloaded meanwhile, digest may belong to outdated password
+                verifiedDigests.remove(identifier);
+            }
+        }
+        return matches;
+    }
+
+    public synchronized void setPassword(String identifier, String password) throws IOException {
+        ensureCurrent();
+        byte[] salt = new byte[SALT_LENGTH_BYTES];
+        secureRandom.nextBytes(salt);
+        Map<String, ChargePointCredential> updated = new HashMap<>(credentials);
+        updated.put(identifier, new ChargePointCredential(identifier, Base64.getEncoder().encodeToString(salt),
+                Base64.getEncoder().encodeToString(pbkdf2(password, salt, HASH_ITERATIONS)), HASH_ITERATIONS));
+        persist(updated);
+    }
+
+    public synchronized boolean deletePassword(String identifier) throws IOException {
+        ensureCurrent();
+        if (!credentials.containsKey(identifier)) {
+            return false;
+        }
+        Map<String, ChargePointCredential> updated = new HashMap<>(credentials);
+        updated.remove(identifier);
+        persist(updated);
+        return true;
+    }
+
+    /**
+     * Changes are applied to the content of the file, not to credentials which may be outdated or failed to load
+     */
+    private void ensureCurrent() throws IOException {
+        reloadIfModified();
+        if (loadFailed) {
+            throw new IOException(String.format("%s could not be loaded, fix it before changing credentials",
+                    CREDENTIALS_PATH));
+        }
+    }
+
+    private void persist(Map<String, ChargePointCredential> updated) throws IOException {
+        CredentialsFile file = new CredentialsFile();
+        file.credentials = new ArrayList<>(updated.values());
+        Path tmp = Files.createTempFile(CREDENTIALS_PATH.getParent(), "credentials", ".tmp");
+        Files.writeString(tmp, new GsonBuilder().setPrettyPrinting().create().toJson(file));
+        Files.move(tmp, CREDENTIALS_PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        publish(updated);
+        loadedLastModified = Files.getLastModifiedTime(CREDENTIALS_PATH).toMillis();
+    }
+
+    private synchronized void reloadIfModified() {
+        try {
+            long lastModified = Files.exists(CREDENTIALS_PATH) ? Files.getLastModifiedTime(CREDENTIALS_PATH).toMillis() : -1;
+            if (lastModified != loadedLastModified) {
+                LOGGER.info("Credentials file changed, reloading");
+                reload();
+            }
+        } catch (IOException e) {
+            LOGGER.warn(String.format("Could not check %s", CREDENTIALS_PATH), e);
+        }
+    }
+
+    private void reload() {
+        if (!Files.exists(CREDENTIALS_PATH)) {
+            publish(Map.of());
+            loadedLastModified = -1;
+            loadFailed = false;
+            return;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(CREDENTIALS_PATH).toMillis();
+            CredentialsFile file = new Gson().fromJson(Files.readString(CREDENTIALS_PATH), CredentialsFile.class);
+            Map<String, ChargePointCredential> loaded = new HashMap<>();
+            if (file != null && file.credentials != null) {
+                file.credentials.stream()
+                        .filter(credential -> credential.getIdentifier() != null && credential.getHash() != null
+                                && credential.getSalt() != null && credential.getIterations() > 0)
+                        .forEach(credential -> loaded.put(credential.getIdentifier(), credential));
+            }
+            publish(loaded);
+            loadedLastModified = lastModified;
+            loadFailed = false;
+            LOGGER.info("Loaded {} charge point credentials", loaded.size());
+        } catch (IOException | JsonParseException e) {
+            // keep previous credentials, a half written file must not lock out all charge points
+            loadFailed = true;
+            LOGGER.error(String.format("Could not load %s", CREDENTIALS_PATH), e);
+        }
+    }
+
+    private void publish(Map<String, ChargePointCredential> updated) {
+        credentials = Map.copyOf(updated);
+        verifiedDigests.clear();
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        try {
+            PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_LENGTH_BITS);
+            return SecretKeyFactory.getInstance(HASH_ALGORITHM).generateSecret(keySpec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(String.format("%s is not supported", HASH_ALGORITHM), e);
+        }
+    }
+
+    private static byte[] sha256(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static class CredentialsFile {
+        private List<ChargePointCredential> credentials = new ArrayList<>();
+    }
+}
@@ -0,0 +1,181 @@
+package com.omb.ocpp.server.broadcast;
+
+import eu.chargetime.ocpp.model.Request;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * State of a single broadcast, mutated only by the broadcast scheduler thread,
+ * counters are volatile so progress can be read from any thread
+ */
+class BroadcastJob {
+    private final UUID id = UUID.randomUUID();
+    private final Request request;
+    private final Deque<UUID> pendingSessions;
+    private final int total;
+    private final int maxInFlight;
+    private final int ratePerSecond;
+    private final int responseTimeoutSeconds;
+    private final Instant startedAt = Instant.now();
+    private final Set<UUID> failedSessions = ConcurrentHashMap.newKeySet();
+
+    private volatile BroadcastState state = BroadcastState.RUNNING;
+    private volatile int sent;
+    private volatile int inFlight;
+    private volatile int succeeded;
+    private volatile int failed;
+    private volatile int timedOut;
+    private volatile Instant finishedAt;
+
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private volatile ScheduledFuture<?> tickFuture;
+
+    BroadcastJob(Request request, Collection<UUID> sessions, int maxInFlight, int ratePerSecond,
+                 int responseTimeoutSeconds) {
+        this.request = request;
+        this.pendingSessions = new ArrayDeque<>(sessions);
+        this.total = sessions.size();
+        this.maxInFlight = maxInFlight;
+        this.ratePerSecond = ratePerSecond;
+        this.responseTimeoutSeconds = responseTimeoutSeconds;
+        this.tokens = Math.min(1, ratePerSecond);
+    }
+
+    /**
+     * Token bucket refill, bucket holds at most one tick worth of tokens so requests are spread evenly
+     */
+    void refillTokens(long tickMillis) {
+        if (ratePerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        double capacity = Math.max(1d, ratePerSecond * tickMillis / 1000d);
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * ratePerSecond / 1_000_000_000d);
+        lastRefillNanos = now;
+    }
+
+    boolean canDispatch() {
+        return state == BroadcastState.RUNNING
+                && !pendingSessions.isEmpty()
+                && (maxInFlight <= 0 || inFlight < maxInFlight)
+                && (ratePerSecond <= 0 || tokens >= 1);
+    }
+
+    UUID nextSession() {
+        if (ratePerSecond > 0) {
+            tokens--;
+        }
+        sent++;
+        inFlight++;
+        return pendingSessions.poll();
+    }
+
+    void onResponse(UUID sessionUuid, Throwable throwable) {
+        inFlight--;
+        if (throwable == null) {
+            succeeded++;
+        } else if (throwable instanceof TimeoutException || throwable.getCause() instanceof TimeoutException) {
+            timedOut++;
+            failedSessions.add(sessionUuid);
+        } else {
+            failed++;
+            failedSessions.add(sessionUuid);
+        }
+    }
+
+    boolean isDone() {
+        return state != BroadcastState.RUNNING || (pendingSessions.isEmpty() && inFlight == 0);
+    }
+
+    void finish() {
+        if (state == BroadcastState.RUNNING) {
+            state = BroadcastState.COMPLETED;
+        }
+        if (finishedAt == null) {
+            finishedAt = Instant.now();
+        }
+        if (tickFuture != null) {
+            tickFuture.cancel(false);
+        }
+    }
+
+    void cancel() {
+        if (state == BroadcastState.RUNNING) {
+            state = BroadcastState.CANCELLED;
+            pendingSessions.clear();
+            finish();
+        }
+    }
+
+    void setTickFuture(ScheduledFuture<?> tickFuture) {
+        this.tickFuture = tickFuture;
+        if (finishedAt != null) {
+            tickFuture.cancel(false);
+        }
+    }
+
+    BroadcastProgress getProgress() {
+        return new BroadcastProgress(this);
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    Request getRequest() {
+        return request;
+    }
+
+    int getResponseTimeoutSeconds() {
+        return responseTimeoutSeconds;
+    }
+
+    BroadcastState getState() {
+        return state;
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    int getSent() {
+        return sent;
+    }
+
+    int getInFlight() {
+        return inFlight;
+    }
+
+    int getSucceeded() {
+        return succeeded;
+    }
+
+    int getFailed() {
+        return failed;
+    }
+
+    int getTimedOut() {
+        return timedOut;
+    }
+
+    Set<UUID> getFailedSessions() {
+        return failedSessions;
+    }
+
+    Instant getStartedAt() {
+        return startedAt;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
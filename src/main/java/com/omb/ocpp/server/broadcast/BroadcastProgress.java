@@ -0,0 +1,89 @@
+package com.omb.ocpp.server.broadcast;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable view of a broadcast job state, returned by REST API
+ */
+public class BroadcastProgress {
+    private final UUID jobId;
+    private final String requestType;
+    private final BroadcastState state;
+    private final int total;
+    private final int sent;
+    private final int inFlight;
+    private final int succeeded;
+    private final int failed;
+    private final int timedOut;
+    private final Set<UUID> failedSessions;
+    private final String startedAt;
+    private final String finishedAt;
+
+    BroadcastProgress(BroadcastJob job) {
+        this.jobId = job.getId();
+        this.requestType = job.getRequest().getClass().getSimpleName();
+        this.state = job.getState();
+        this.total = job.getTotal();
+        this.sent = job.getSent();
+        this.inFlight = job.getInFlight();
+        this.succeeded = job.getSucceeded();
+        this.failed = job.getFailed();
+        this.timedOut = job.getTimedOut();
+        this.failedSessions = Set.copyOf(job.getFailedSessions());
+        this.startedAt = job.getStartedAt().toString();
+        this.finishedAt = job.getFinishedAt() == null ? null : job.getFinishedAt().toString();
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public String getRequestType() {
+        return requestType;
+    }
+
+    public BroadcastState getState() {
+        return state;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getSent() {
+        return sent;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getTimedOut() {
+        return timedOut;
+    }
+
+    public int getPercentCompleted() {
+        return total == 0 ? 100 : (succeeded + failed + timedOut) * 100 / total;
+    }
+
+    public Set<UUID> getFailedSessions() {
+        return failedSessions;
+    }
+
+    public String getStartedAt() {
+        return startedAt;
+    }
+
+    public String getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,140 @@
+package com.omb.ocpp.server.broadcast;
+
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
+import com.omb.ocpp.server.OcppServerService;
+import com.omb.ocpp.server.SessionRegistry;
+import eu.chargetime.ocpp.model.Confirmation;
+import eu.chargetime.ocpp.model.Request;
+import org.jvnet.hk2.annotations.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sends one request to the whole fleet in a controlled way: limits number of requests waiting for response and
+ * number of requests sent per second, so responses do not arrive all at once.
+ * All job state is mutated by one scheduler thread.
+ */
+@Service
+public class BroadcastService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BroadcastService.class);
+    private static final long TICK_MILLIS = 100;
+    private static final int MAX_FINISHED_JOBS = 100;
+
+    private final OcppServerService ocppServerService;
+    private final SessionRegistry sessionRegistry;
+    private final Config config;
+    private final Map<UUID, BroadcastJob> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "broadcast-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Inject
+    public BroadcastService(OcppServerService ocppServerService, SessionRegistry sessionRegistry, Config config) {
+        this.ocppServerService = ocppServerService;
+        this.sessionRegistry = sessionRegistry;
+        this.config = config;
+    }
+
+    public BroadcastProgress start(Request request) {
+        BroadcastJob job = new BroadcastJob(request,
+                List.copyOf(sessionRegistry.getSessionUUIDs()),
+                config.getInt(ConfigKey.BROADCAST_MAX_IN_FLIGHT),
+                config.getInt(ConfigKey.BROADCAST_RATE_PER_SECOND),
+                config.getInt(ConfigKey.BROADCAST_RESPONSE_TIMEOUT_SECONDS));
+        evictFinishedJobs();
+        jobs.put(job.getId(), job);
+        LOGGER.info("Starting broadcast {} of {} to {} clients", job.getId(), request.getClass().getSimpleName(),
+                job.getTotal());
+        // tick is scheduled from the scheduler thread itself, so the job can't finish before it knows its tick
+        scheduler.execute(() -> {
+            job.setTickFuture(scheduler.scheduleAtFixedRate(() -> dispatch(job), TICK_MILLIS, TICK_MILLIS,
+                    TimeUnit.MILLISECONDS));
+            dispatch(job);
+        });
+        return job.getProgress();
+    }
+
+    public Optional<BroadcastProgress> getProgress(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(BroadcastJob::getProgress);
+    }
+
+    public List<BroadcastProgress> getAllProgress() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(BroadcastJob::getStartedAt))
+                .map(BroadcastJob::getProgress)
+                .collect(Collectors.toList());
+    }
+
+    public boolean cancel(UUID jobId) {
+        BroadcastJob job = jobs.get(jobId);
+        if (job == null) {
+            return false;
+        }
+        scheduler.execute(job::cancel);
+        return true;
+    }
+
+    private void dispatch(BroadcastJob job) {
+        if (job.getFinishedAt() != null) {
+            job.finish();
+            return;
+        }
+        try {
+            job.refillTokens(TICK_MILLIS);
+            while (job.canDispatch()) {
+                UUID sessionUuid = job.nextSession();
+                send(sessionUuid, job.getRequest())
+                        .toCompletableFuture()
+                        .copy()
+                        .orTimeout(job.getResponseTimeoutSeconds(), TimeUnit.SECONDS)
+                        .whenComplete((confirmation, throwable) -> scheduler.execute(() -> {
+                            job.onResponse(sessionUuid, throwable);
+                            dispatch(job);
+                        }));
+            }
+            if (job.isDone() && job.getFinishedAt() == null) {
+                job.finish();
+                LOGGER.info("Broadcast {} {}, succeeded: {}, failed: {}, timed out: {}", job.getId(), job.getState(),
+                        job.getSucceeded(), job.getFailed(), job.getTimedOut());
+            }
+        } catch (Exception e) {
+            LOGGER.error(String.format("Broadcast %s failed", job.getId()), e);
+            job.cancel();
+        }
+    }
+
+    private CompletionStage<Confirmation> send(UUID sessionUuid, Request request) {
+        try {
+            return ocppServerService.send(sessionUuid, request);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void evictFinishedJobs() {
+        List<BroadcastJob> finishedJobs = jobs.values().stream()
+                .filter(job -> job.getFinishedAt() != null)
+                .sorted(Comparator.comparing(BroadcastJob::getFinishedAt))
+                .collect(Collectors.toList());
+        for (int i = 0; i < finishedJobs.size() - MAX_FINISHED_JOBS; i++) {
+            jobs.remove(finishedJobs.get(i).getId());
+        }
+    }
+}
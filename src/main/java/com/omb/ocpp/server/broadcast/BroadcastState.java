@@ -0,0 +1,7 @@
+package com.omb.ocpp.server.broadcast;
+
+public enum BroadcastState {
+    RUNNING,
+    COMPLETED,
+    CANCELLED
+}
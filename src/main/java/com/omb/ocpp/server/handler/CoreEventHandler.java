@@ -1,7 +1,7 @@
 package com.omb.ocpp.server.handler;
 
 import com.omb.ocpp.groovy.GroovyService;
-import eu.chargetime.ocpp.JSONCommunicator;
+import com.omb.ocpp.server.trace.MessageTracer;
 import eu.chargetime.ocpp.feature.profile.ServerCoreEventHandler;
 import eu.chargetime.ocpp.model.core.AuthorizeConfirmation;
 import eu.chargetime.ocpp.model.core.AuthorizeRequest;
@@ -20,70 +20,66 @@ import eu.chargetime.ocpp.model.core.StatusNotificationRequest;
 import eu.chargetime.ocpp.model.core.StopTransactionConfirmation;
 import eu.chargetime.ocpp.model.core.StopTransactionRequest;
 import org.jvnet.hk2.annotations.Service;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.util.UUID;
 
 @Service
 public class CoreEventHandler implements ServerCoreEventHandler {
-    private static final Logger LOGGER = LoggerFactory.getLogger(CoreEventHandler.class);
-    public static final String RECEIVED_REQUEST = "Received request {} - {}";
-    private final JSONCommunicator jsonCommunicator = new JSONCommunicator(null);
     private final GroovyService groovyService;
+    private final MessageTracer messageTracer;
 
     @Inject
-    public CoreEventHandler(GroovyService groovyService) {
+    public CoreEventHandler(GroovyService groovyService, MessageTracer messageTracer) {
         this.groovyService = groovyService;
+        this.messageTracer = messageTracer;
     }
 
     @Override
     public AuthorizeConfirmation handleAuthorizeRequest(UUID sessionIndex, AuthorizeRequest request) {
-        LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(),
-                jsonCommunicator.packPayload(request));
+        messageTracer.traceReceived(sessionIndex, request);
         return groovyService.getConfirmation(sessionIndex, request);
     }
 
     @Override
     public BootNotificationConfirmation handleBootNotificationRequest(UUID sessionIndex, BootNotificationRequest request) {
-        LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(), jsonCommunicator.packPayload(request));
+        messageTracer.traceReceived(sessionIndex, request);
         return groovyService.getConfirmation(sessionIndex, request);
     }
 
     @Override
     public DataTransferConfirmation handleDataTransferRequest(UUID sessionIndex, DataTransferRequest request) {
-        LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(), jsonCommunicator.packPayload(request));
+        messageTracer.traceReceived(sessionIndex, request);
         return groovyService.getConfirmation(sessionIndex, request);
     }
 
     @Override
     public HeartbeatConfirmation handleHeartbeatRequest(UUID sessionIndex, HeartbeatRequest request) {
-        LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(), jsonCommunicator.packPayload(request));
+        messageTracer.traceReceived(sessionIndex, request);
         return groovyService.getConfirmation(sessionIndex, request);
     }
 
     @Override
     public MeterValuesConfirmation handleMeterValuesRequest(UUID sessionIndex, MeterValuesRequest request) {
-        LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(), jsonCommunicator.packPayload(request));
+        messageTracer.traceReceived(sessionIndex, request);
         return groovyService.getConfirmation(sessionIndex, request);
     }
 
     @Override
     public StartTransactionConfirmation handleStartTransactionRequest(UUID sessionIndex, StartTransactionRequest request) {
-        LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(), jsonCommunicator.packPayload(request));
+        messageTracer.traceReceived(sessionIndex, request);
         return groovyService.getConfirmation(sessionIndex, request);
     }
 
     @Override
     public StatusNotificationConfirmation handleStatusNotificationRequest(UUID sessionIndex, StatusNotificationRequest request) {
-        LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(), jsonCommunicator.packPayload(request));
+        messageTracer.traceReceived(sessionIndex, request);
         return groovyService.getConfirmation(sessionIndex, request);
     }
 
     @Override
     public StopTransactionConfirmation handleStopTransactionRequest(UUID sessionIndex, StopTransactionRequest request) {
-        LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(), jsonCommunicator.packPayload(request));
+        messageTracer.traceReceived(sessionIndex, request);
         return groovyService.getConfirmation(sessionIndex, request);
     }
 }
@@ -0,0 +1,64 @@
+package com.omb.ocpp.server.journal;
+
+import java.util.UUID;
+
+/**
+ * OCPP request read back from the journal
+ */
+public class JournalEntry {
+    public enum Direction {
+        RECEIVED, SENT
+    }
+
+    private final long offset;
+    private final long timestamp;
+    private final UUID sessionUuid;
+    private final Direction direction;
+    private final String action;
+    private final String payload;
+
+    JournalEntry(long offset, long timestamp, UUID sessionUuid, Direction direction, String action, String payload) {
+        this.offset = offset;
+        this.timestamp = timestamp;
+        this.sessionUuid = sessionUuid;
+        this.direction = direction;
+        this.action = action;
+        this.payload = payload;
+    }
+
+    /**
+     * @return position of the entry in the journal, grows with every entry
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return epoch milliseconds when the request was received or sent
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public UUID getSessionUuid() {
+        return sessionUuid;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return OCPP action e.g. Heartbeat, StatusNotification
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * @return request serialized to OCPP JSON payload
+     */
+    public String getPayload() {
+        return payload;
+    }
+}
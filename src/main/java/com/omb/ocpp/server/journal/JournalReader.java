@@ -0,0 +1,58 @@
+package com.omb.ocpp.server.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads journal segments of a folder without opening them for append, so it is safe to use while a server journals
+ * to the same folder. Only complete records are read.
+ */
+public class JournalReader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalReader.class);
+
+    private final Path folder;
+
+    public JournalReader(Path folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Reads all journaled entries, oldest first
+     */
+    public void forEach(Consumer<JournalEntry> consumer) throws IOException {
+        if (Files.notExists(folder)) {
+            return;
+        }
+        for (long baseOffset : baseOffsets(folder)) {
+            try {
+                JournalSegment.of(folder, baseOffset).scan(consumer);
+            } catch (NoSuchFileException e) {
+                LOGGER.debug("Journal segment {} was deleted while reading", baseOffset);
+            }
+        }
+    }
+
+    /**
+     * @return base offsets of segments in the folder, in order
+     */
+    static List<Long> baseOffsets(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.map(JournalSegment::baseOffsetOf)
+                    .filter(baseOffset -> baseOffset >= 0)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.omb.ocpp.server.journal;
+
+import com.omb.ocpp.server.journal.JournalEntry.Direction;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * One file of the journal together with its session index.
+ * <p>
+ * Journal file is a sequence of records: body length (int), CRC32 of body (int) and body made of timestamp (long),
+ * session UUID (2 longs), direction (byte), action length (short), action and payload in UTF-8.
+ * Index file has an entry per record: session UUID (2 longs) and record position in the journal file (int).
+ * Index entry is written after its record, so a record referenced by the index is always complete.
+ * Positions of records by session are kept in memory, the index file is read only for segments which were not
+ * appended to since start, once.
+ */
+class JournalSegment {
+    static final String JOURNAL_SUFFIX = ".journal";
+    static final String INDEX_SUFFIX = ".index";
+    static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    static final int INDEX_ENTRY_BYTES = Long.BYTES * 2 + Integer.BYTES;
+    private static final int FIXED_BODY_BYTES = Long.BYTES * 3 + Byte.BYTES + Short.BYTES;
+
+    private final long baseOffset;
+    private final Path journalPath;
+    private final Path indexPath;
+    private FileChannel journalChannel;
+    private FileChannel indexChannel;
+    private long size;
+    private final Object positionsLock = new Object();
+    // guarded by positionsLock, null until built
+    private Map<UUID, PositionList> positionsBySession;
+
+    private JournalSegment(Path folder, long baseOffset) {
+        this.baseOffset = baseOffset;
+        this.journalPath = folder.resolve(String.format("%020d%s", baseOffset, JOURNAL_SUFFIX));
+        this.indexPath = folder.resolve(String.format("%020d%s", baseOffset, INDEX_SUFFIX));
+    }
+
+    static JournalSegment of(Path folder, long baseOffset) {
+        return new JournalSegment(folder, baseOffset);
+    }
+
+    /**
+     * @return base offset encoded in the journal file name, or -1 if it is not a journal file
+     */
+    static long baseOffsetOf(Path journalPath) {
+        String name = journalPath.getFileName().toString();
+        if (!name.endsWith(JOURNAL_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(0, name.length() - JOURNAL_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static int recordSize(byte[] action, byte[] payload) {
+        return RECORD_HEADER_BYTES + FIXED_BODY_BYTES + action.length + payload.length;
+    }
+
+    static void encode(ByteBuffer records, long timestamp, UUID sessionUuid, Direction direction, byte[] action,
+                       byte[] payload) {
+        int start = records.position();
+        records.putInt(FIXED_BODY_BYTES + action.length + payload.length);
+        records.putInt(0);
+        records.putLong(timestamp);
+        records.putLong(sessionUuid.getMostSignificantBits());
+        records.putLong(sessionUuid.getLeastSignificantBits());
+        records.put((byte) direction.ordinal());
+        records.putShort((short) action.length);
+        records.put(action);
+        records.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(records.duplicate().position(start + RECORD_HEADER_BYTES).limit(records.position()));
+        records.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    long getBaseOffset() {
+        return baseOffset;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Opens segment for appending. Records after the last complete one (left by a crash) are truncated and index is
+     * rebuilt from the journal file.
+     */
+    void openForAppend() throws IOException {
+        journalChannel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer index = ByteBuffer.allocate(64 * 1024);
+        Map<UUID, PositionList> positions = new HashMap<>();
+        try {
+            size = scan(entry -> {
+                if (index.remaining() < INDEX_ENTRY_BYTES) {
+                    writeIndex(index);
+                }
+                int position = (int) (entry.getOffset() - baseOffset);
+                putIndexEntry(index, entry.getSessionUuid(), position);
+                positions.computeIfAbsent(entry.getSessionUuid(), sessionUuid -> new PositionList()).add(position);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeFully(indexChannel, index.flip());
+        journalChannel.truncate(size);
+        journalChannel.position(size);
+        indexChannel.force(false);
+        synchronized (positionsLock) {
+            positionsBySession = positions;
+        }
+    }
+
+    private void writeIndex(ByteBuffer index) {
+        try {
+            writeFully(indexChannel, index.flip());
+            index.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void putIndexEntry(ByteBuffer index, UUID sessionUuid, int position) {
+        index.putLong(sessionUuid.getMostSignificantBits());
+        index.putLong(sessionUuid.getLeastSignificantBits());
+        index.putInt(position);
+    }
+
+    /**
+     * Writes encoded records and their index entries and forces them to disk
+     */
+    void append(ByteBuffer records, ByteBuffer indexEntries) throws IOException {
+        int length = records.remaining();
+        ByteBuffer appendedEntries = indexEntries.duplicate();
+        writeFully(journalChannel, records);
+        writeFully(indexChannel, indexEntries);
+        journalChannel.force(false);
+        indexChannel.force(false);
+        size += length;
+        synchronized (positionsLock) {
+            addPositions(positionsBySession, appendedEntries);
+        }
+    }
+
+    void close() throws IOException {
+        if (journalChannel != null) {
+            journalChannel.close();
+            indexChannel.close();
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(indexPath);
+    }
+
+    /**
+     * Reads complete records in order
+     *
+     * @return position after the last complete record
+     */
+    long scan(Consumer<JournalEntry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+                     64 * 1024))) {
+            long limit = channel.size();
+            long position = 0;
+            while (position + RECORD_HEADER_BYTES <= limit) {
+                int bodyLength = input.readInt();
+                int checksum = input.readInt();
+                if (bodyLength < FIXED_BODY_BYTES || position + RECORD_HEADER_BYTES + bodyLength > limit) {
+                    break;
+                }
+                byte[] body = new byte[bodyLength];
+                input.readFully(body);
+                JournalEntry entry = decode(baseOffset + position, body, checksum);
+                if (entry == null) {
+                    break;
+                }
+                consumer.accept(entry);
+                position += RECORD_HEADER_BYTES + bodyLength;
+            }
+            return position;
+        } catch (EOFException e) {
+            throw new IOException(String.format("Journal %s changed while reading", journalPath), e);
+        }
+    }
+
+    /**
+     * @return positions of records of the session in the journal file, in order
+     */
+    List<Integer> positionsOf(UUID sessionUuid) throws IOException {
+        synchronized (positionsLock) {
+            if (positionsBySession == null) {
+                Map<UUID, PositionList> positions = new HashMap<>();
+                addPositions(positions, ByteBuffer.wrap(Files.readAllBytes(indexPath)));
+                positionsBySession = positions;
+            }
+            PositionList positions = positionsBySession.get(sessionUuid);
+            return positions == null ? List.of() : positions.toList();
+        }
+    }
+
+    private static void addPositions(Map<UUID, PositionList> positions, ByteBuffer indexEntries) {
+        while (indexEntries.remaining() >= INDEX_ENTRY_BYTES) {
+            UUID sessionUuid = new UUID(indexEntries.getLong(), indexEntries.getLong());
+            positions.computeIfAbsent(sessionUuid, key -> new PositionList()).add(indexEntries.getInt());
+        }
+    }
+
+    List<JournalEntry> read(List<Integer> positions) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>(positions.size());
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            for (int position : positions) {
+                readFully(channel, header.clear(), position);
+                int bodyLength = header.getInt(0);
+                ByteBuffer body = ByteBuffer.allocate(bodyLength);
+                readFully(channel, body, position + RECORD_HEADER_BYTES);
+                JournalEntry entry = decode(baseOffset + position, body.array(), header.getInt(Integer.BYTES));
+                if (entry == null) {
+                    throw new IOException(String.format("Corrupted record %d in %s", position, journalPath));
+                }
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return decoded record or null if the checksum does not match
+     */
+    private static JournalEntry decode(long offset, byte[] body, int checksum) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        long timestamp = buffer.getLong();
+        UUID sessionUuid = new UUID(buffer.getLong(), buffer.getLong());
+        Direction direction = Direction.values()[buffer.get()];
+        int actionLength = buffer.getShort();
+        String action = new String(body, buffer.position(), actionLength, StandardCharsets.UTF_8);
+        int payloadStart = buffer.position() + actionLength;
+        String payload = new String(body, payloadStart, body.length - payloadStart, StandardCharsets.UTF_8);
+        return new JournalEntry(offset, timestamp, sessionUuid, direction, action, payload);
+    }
+
+    /**
+     * Growing list of record positions
+     */
+    private static class PositionList {
+        private int[] positions = new int[4];
+        private int size;
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        List<Integer> toList() {
+            List<Integer> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(positions[i]);
+            }
+            return list;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+}
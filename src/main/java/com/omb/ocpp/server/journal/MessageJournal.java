@@ -0,0 +1,276 @@
+package com.omb.ocpp.server.journal;
+
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
+import com.omb.ocpp.server.journal.JournalEntry.Direction;
+import eu.chargetime.ocpp.JSONCommunicator;
+import eu.chargetime.ocpp.model.Request;
+import org.jvnet.hk2.annotations.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.omb.ocpp.gui.Application.OCPP_SERVER_HOME;
+
+/**
+ * Append only journal of all received and sent OCPP requests, split to segment files of
+ * {@link ConfigKey#JOURNAL_SEGMENT_SIZE_MB}. Message handlers only put requests to a queue, a single writer thread
+ * serializes them and writes every batch with one write per file, so handlers never wait for the disk.
+ */
+@Service
+public class MessageJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageJournal.class);
+    public static final String JOURNAL_FOLDER_NAME = "journal";
+    public static final Path JOURNAL_FOLDER = Paths.get(OCPP_SERVER_HOME, JOURNAL_FOLDER_NAME);
+    // set by tools running in the same OCPP_SERVER_HOME as a server, journal files are then never opened
+    public static final String DISABLED_PROPERTY = "ocpp.journal.disabled";
+    private static final String REQUEST_SUFFIX = "Request";
+    private static final int MAX_BATCH_SIZE = 1024;
+    // record positions in a segment are ints
+    private static final int MAX_SEGMENT_SIZE_MB = 2047;
+
+    private final Config config;
+    private final BlockingQueue<PendingEntry> queue;
+    private final AtomicLong droppedCount = new AtomicLong();
+    // segments are replaced by the writer thread and read by callers of read methods
+    private final Deque<JournalSegment> segments = new ArrayDeque<>();
+    // accessed only by the writer thread
+    private final JSONCommunicator jsonCommunicator = new JSONCommunicator(null);
+    private ByteBuffer records = ByteBuffer.allocate(1024 * 1024);
+    private ByteBuffer indexEntries = ByteBuffer.allocate(MAX_BATCH_SIZE * JournalSegment.INDEX_ENTRY_BYTES);
+    private int rejectedSegmentSizeMb;
+    private volatile boolean running;
+
+    @Inject
+    public MessageJournal(Config config) {
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getInt(ConfigKey.JOURNAL_QUEUE_SIZE)));
+        if (Boolean.getBoolean(DISABLED_PROPERTY)) {
+            LOGGER.info("Message journal is disabled by {}", DISABLED_PROPERTY);
+            return;
+        }
+        try {
+            openSegments();
+        } catch (IOException e) {
+            LOGGER.error("Could not open message journal, messages will not be journaled", e);
+            return;
+        }
+        running = true;
+        Thread writer = new Thread(this::writeLoop, "message-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            running = false;
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "message-journal-flush"));
+    }
+
+    /**
+     * Queues request for writing, request is dropped if the queue is full
+     */
+    public void record(Direction direction, UUID sessionUuid, Request request) {
+        if (!running || !config.getBoolean(ConfigKey.JOURNAL_ENABLED)) {
+            return;
+        }
+        if (!queue.offer(new PendingEntry(System.currentTimeMillis(), sessionUuid, direction, request))
+                && droppedCount.getAndIncrement() % 1000 == 0) {
+            LOGGER.warn("Message journal queue is full, {} messages were not journaled", droppedCount.get());
+        }
+    }
+
+    /**
+     * @return the latest entries of the session, oldest first
+     */
+    public List<JournalEntry> findBySession(UUID sessionUuid, int limit) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        List<JournalSegment> newestFirst = getSegments();
+        Collections.reverse(newestFirst);
+        for (JournalSegment segment : newestFirst) {
+            if (entries.size() >= limit) {
+                break;
+            }
+            try {
+                List<Integer> positions = segment.positionsOf(sessionUuid);
+                positions = positions.subList(Math.max(0, positions.size() - (limit - entries.size())),
+                        positions.size());
+                List<JournalEntry> segmentEntries = segment.read(positions);
+                Collections.reverse(segmentEntries);
+                entries.addAll(segmentEntries);
+            } catch (NoSuchFileException e) {
+                LOGGER.debug("Journal segment {} was deleted while reading", segment.getBaseOffset());
+            }
+        }
+        Collections.reverse(entries);
+        return entries;
+    }
+
+    /**
+     * Reads all journaled entries, oldest first
+     */
+    public void forEach(Consumer<JournalEntry> consumer) throws IOException {
+        for (JournalSegment segment : getSegments()) {
+            try {
+                segment.scan(consumer);
+            } catch (NoSuchFileException e) {
+                LOGGER.debug("Journal segment {} was deleted while reading", segment.getBaseOffset());
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private List<JournalSegment> getSegments() {
+        synchronized (segments) {
+            return new ArrayList<>(segments);
+        }
+    }
+
+    private void openSegments() throws IOException {
+        Files.createDirectories(JOURNAL_FOLDER);
+        JournalReader.baseOffsets(JOURNAL_FOLDER).forEach(baseOffset -> segments.add(JournalSegment.of(JOURNAL_FOLDER, baseOffset)));
+        if (segments.isEmpty()) {
+            segments.add(JournalSegment.of(JOURNAL_FOLDER, 0));
+        }
+        segments.getLast().openForAppend();
+        LOGGER.debug("Opened message journal with {} segments", segments.size());
+    }
+
+    private void writeLoop() {
+        List<PendingEntry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error(String.format("Could not journal %d messages", batch.size()), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        try {
+            segments.getLast().close();
+        } catch (IOException e) {
+            LOGGER.error("Could not close message journal", e);
+        }
+    }
+
+    private void write(List<PendingEntry> batch) throws IOException {
+        long segmentSize = segmentSizeMb() * 1024L * 1024L;
+        records.clear();
+        indexEntries.clear();
+        for (PendingEntry entry : batch) {
+            byte[] action = entry.getAction().getBytes(StandardCharsets.UTF_8);
+            byte[] payload = String.valueOf(jsonCommunicator.packPayload(entry.request)).getBytes(StandardCharsets.UTF_8);
+            int recordSize = JournalSegment.recordSize(action, payload);
+
+            JournalSegment segment = segments.getLast();
+            long position = segment.size() + records.position();
+            if (position > 0 && position + recordSize > segmentSize) {
+                flush();
+                roll();
+                position = 0;
+            }
+            if (records.remaining() < recordSize) {
+                flush();
+                position = segments.getLast().size();
+                if (records.capacity() < recordSize) {
+                    records = ByteBuffer.allocate(recordSize);
+                }
+            }
+            JournalSegment.putIndexEntry(indexEntries, entry.sessionUuid, (int) position);
+            JournalSegment.encode(records, entry.timestamp, entry.sessionUuid, entry.direction, action, payload);
+        }
+        flush();
+    }
+
+    private int segmentSizeMb() {
+        int segmentSizeMb = config.getInt(ConfigKey.JOURNAL_SEGMENT_SIZE_MB);
+        if (segmentSizeMb > MAX_SEGMENT_SIZE_MB) {
+            if (rejectedSegmentSizeMb != segmentSizeMb) {
+                rejectedSegmentSizeMb = segmentSizeMb;
+                LOGGER.warn("{} {} is too large, {} is used", ConfigKey.JOURNAL_SEGMENT_SIZE_MB.getKey(),
+                        segmentSizeMb, MAX_SEGMENT_SIZE_MB);
+            }
+            return MAX_SEGMENT_SIZE_MB;
+        }
+        return Math.max(1, segmentSizeMb);
+    }
+
+    private void flush() throws IOException {
+        if (records.position() > 0) {
+            segments.getLast().append(records.flip(), indexEntries.flip());
+        }
+        records.clear();
+        indexEntries.clear();
+    }
+
+    private void roll() throws IOException {
+        JournalSegment current = segments.getLast();
+        current.close();
+        JournalSegment next = JournalSegment.of(JOURNAL_FOLDER, current.getBaseOffset() + current.size());
+        next.openForAppend();
+        List<JournalSegment> deleted = new ArrayList<>();
+        synchronized (segments) {
+            segments.add(next);
+            while (segments.size() > Math.max(1, config.getInt(ConfigKey.JOURNAL_MAX_SEGMENTS))) {
+                deleted.add(segments.removeFirst());
+            }
+        }
+        for (JournalSegment segment : deleted) {
+            segment.delete();
+        }
+        LOGGER.debug("Message journal continues in segment {}, {} old segments deleted", next.getBaseOffset(),
+                deleted.size());
+    }
+
+    private static class PendingEntry {
+        private final long timestamp;
+        private final UUID sessionUuid;
+        private final Direction direction;
+        private final Request request;
+
+        PendingEntry(long timestamp, UUID sessionUuid, Direction direction, Request request) {
+            this.timestamp = timestamp;
+            this.sessionUuid = sessionUuid;
+            this.direction = direction;
+            this.request = request;
+        }
+
+        String getAction() {
+            String name = request.getClass().getSimpleName();
+            return name.endsWith(REQUEST_SUFFIX) ? name.substring(0, name.length() - REQUEST_SUFFIX.length()) : name;
+        }
+    }
+}
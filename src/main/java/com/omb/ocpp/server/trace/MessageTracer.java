@@ -0,0 +1,138 @@
+package com.omb.ocpp.server.trace;
+
+import com.omb.ocpp.config.Config;
+import com.omb.ocpp.config.ConfigKey;
+import com.omb.ocpp.server.SessionRegistry;
+import com.omb.ocpp.server.journal.JournalEntry.Direction;
+import com.omb.ocpp.server.journal.MessageJournal;
+import eu.chargetime.ocpp.JSONCommunicator;
+import eu.chargetime.ocpp.model.Request;
+import eu.chargetime.ocpp.model.SessionInformation;
+import org.jvnet.hk2.annotations.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Logs OCPP payloads. Payload is serialized only if DEBUG is enabled for this logger and the message passes
+ * charge point / action filters, empty filter means that everything is traced.
+ * Every message is also recorded to {@link MessageJournal} regardless of filters.
+ */
+@Service
+public class MessageTracer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageTracer.class);
+    private static final String RECEIVED_REQUEST = "Received request {} from {} - {}";
+    private static final String SENDING_REQUEST = "Sending message: {} to {}";
+    private static final String REQUEST_SUFFIX = "Request";
+
+    private final JSONCommunicator jsonCommunicator = new JSONCommunicator(null);
+    private final SessionRegistry sessionRegistry;
+    private final MessageJournal messageJournal;
+    private final Config config;
+    // both filters are replaced together, so a message is never checked against a half-updated pair
+    private volatile Filters filters;
+
+    @Inject
+    public MessageTracer(SessionRegistry sessionRegistry, MessageJournal messageJournal, Config config) {
+        this.sessionRegistry = sessionRegistry;
+        this.messageJournal = messageJournal;
+        this.config = config;
+        this.filters = new Filters(config.getStringCollection(ConfigKey.TRACE_IDENTIFIERS),
+                config.getStringCollection(ConfigKey.TRACE_ACTIONS));
+        config.addChangeListener((changedKeys, snapshot) -> {
+            if (changedKeys.contains(ConfigKey.TRACE_IDENTIFIERS) || changedKeys.contains(ConfigKey.TRACE_ACTIONS)) {
+                filters = new Filters(snapshot.getStringCollection(ConfigKey.TRACE_IDENTIFIERS),
+                        snapshot.getStringCollection(ConfigKey.TRACE_ACTIONS));
+            }
+        });
+    }
+
+    public void traceReceived(UUID sessionUuid, Request request) {
+        messageJournal.record(Direction.RECEIVED, sessionUuid, request);
+        if (LOGGER.isDebugEnabled() && isTraced(sessionUuid, request)) {
+            LOGGER.debug(RECEIVED_REQUEST, request.getClass().getSimpleName(), sessionUuid,
+                    jsonCommunicator.packPayload(request));
+        }
+    }
+
+    public void traceSending(UUID sessionUuid, Request request, String recipient) {
+        if (LOGGER.isDebugEnabled() && isTraced(sessionUuid, request)) {
+            LOGGER.debug(SENDING_REQUEST, jsonCommunicator.packPayload(request), recipient);
+        }
+    }
+
+    /**
+     * Journals request which was handed over to the connection, requests which could not be sent are not journaled
+     */
+    public void traceSent(UUID sessionUuid, Request request) {
+        messageJournal.record(Direction.SENT, sessionUuid, request);
+    }
+
+    /**
+     * Changes filters and persists them to configuration
+     *
+     * @param identifiers charge point names, as used in the connection url
+     * @param actions     OCPP actions e.g. Heartbeat, StatusNotification
+     */
+    public void setFilters(Collection<String> identifiers, Collection<String> actions) {
+        Filters changed = new Filters(identifiers, actions);
+        filters = changed;
+        Map<ConfigKey, Object> values = new EnumMap<>(ConfigKey.class);
+        values.put(ConfigKey.TRACE_IDENTIFIERS, new ArrayList<>(changed.identifiers));
+        values.put(ConfigKey.TRACE_ACTIONS, new ArrayList<>(changed.actions));
+        config.setValues(values);
+        LOGGER.info("Message trace filters changed, identifiers: {}, actions: {}", changed.identifiers,
+                changed.actions);
+    }
+
+    public Set<String> getTracedIdentifiers() {
+        return filters.identifiers;
+    }
+
+    public Set<String> getTracedActions() {
+        return filters.actions;
+    }
+
+    private boolean isTraced(UUID sessionUuid, Request request) {
+        Filters current = filters;
+        return (current.identifiers.isEmpty() || current.identifiers.contains(getIdentifier(sessionUuid)))
+                && (current.actions.isEmpty() || current.actions.contains(getAction(request)));
+    }
+
+    private String getIdentifier(UUID sessionUuid) {
+        return sessionRegistry.get(sessionUuid)
+                .map(SessionInformation::getIdentifier)
+                .map(identifier -> identifier.startsWith("/") ? identifier.substring(1) : identifier)
+                .orElse("");
+    }
+
+    private static Set<String> toFilter(Collection<String> values) {
+        return values.stream()
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static String getAction(Request request) {
+        String name = request.getClass().getSimpleName();
+        return name.endsWith(REQUEST_SUFFIX) ? name.substring(0, name.length() - REQUEST_SUFFIX.length()) : name;
+    }
+
+    private static class Filters {
+        private final Set<String> identifiers;
+        private final Set<String> actions;
+
+        Filters(Collection<String> identifiers, Collection<String> actions) {
+            this.identifiers = toFilter(identifiers);
+            this.actions = toFilter(actions);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.omb.ocpp.groovy;
+
+import com.omb.ocpp.gui.Application;
+import eu.chargetime.ocpp.model.Confirmation;
+import eu.chargetime.ocpp.model.core.AuthorizeRequest;
+import eu.chargetime.ocpp.model.core.HeartbeatConfirmation;
+import eu.chargetime.ocpp.model.core.HeartbeatRequest;
+import groovy.lang.GroovyClassLoader;
+import org.codehaus.groovy.GroovyBugError;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Supplier lookup takes no lock: request threads read the supplier snapshot while reloads replace it, they must
+ * always see either the previous or the new supplier and never a partially built one.
+ */
+public class GroovyServiceConcurrencyTest {
+    private static final int READERS = 8;
+    private static final int RELOADS = 4;
+    private static final int NO_SUPPLIER_CALLS = 20_000;
+    private static final String SUPPLIER_SCRIPT = "HeartbeatTestSupplier.groovy";
+    private static final Set<Integer> SUPPLIER_YEARS = Set.of(2001, 2002);
+
+    private static GroovyService groovyService;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        Path home = Paths.get(System.getenv("OCPP_SERVER_HOME"));
+        Files.createDirectories(home.resolve(Paths.get("groovy", "src", "main", "groovy", "com", "omb", "ocpp",
+                "groovy", "supplier")));
+        groovyService = Application.APPLICATION.getService(GroovyService.class);
+    }
+
+    @Test
+    public void missingSupplierAnswersNullFromConcurrentThreads() throws Exception {
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicLong answered = new AtomicLong();
+        runReaders(failures, () -> {
+            for (int i = 0; i < NO_SUPPLIER_CALLS; i++) {
+                AuthorizeRequest request = new AuthorizeRequest("tag");
+                Confirmation confirmation = groovyService.getConfirmation(UUID.randomUUID(), request);
+                Confirmation asyncConfirmation = groovyService.<Confirmation>getConfirmationAsync(UUID.randomUUID(),
+                        request).toCompletableFuture().get();
+                assertNull(confirmation);
+                assertNull(asyncConfirmation);
+                answered.incrementAndGet();
+            }
+            return null;
+        }, () -> {
+        });
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals((long) READERS * NO_SUPPLIER_CALLS, answered.get());
+    }
+
+    @Test
+    public void readersSeeWholeSupplierDuringReloads() throws Exception {
+        assumeGroovyCompilesOnThisJvm();
+        uploadSupplier(2001);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        AtomicLong answered = new AtomicLong();
+        runReaders(failures, () -> {
+            while (reloading.get()) {
+                HeartbeatConfirmation confirmation = groovyService.getConfirmation(UUID.randomUUID(),
+                        new HeartbeatRequest());
+                int year = confirmation.getCurrentTime().getYear();
+                assertTrue("Unexpected supplier answer " + year, SUPPLIER_YEARS.contains(year));
+                answered.incrementAndGet();
+            }
+            return null;
+        }, () -> {
+            try {
+                for (int i = 1; i <= RELOADS; i++) {
+                    uploadSupplier(2001 + i % 2);
+                }
+            } finally {
+                reloading.set(false);
+            }
+        });
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertTrue(answered.get() > 0);
+    }
+
+    /**
+     * Runs the reader on {@link #READERS} threads while the writer runs on the calling thread
+     */
+    private static void runReaders(Queue<Throwable> failures, Callable<Void> reader,
+                                   ThrowingRunnable writer) throws Exception {
+        CountDownLatch started = new CountDownLatch(READERS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                try {
+                    reader.call();
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }, "groovy-reader-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        writer.run();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Groovy compiler reads JDK class files, the bundled version does not support class files of newer JDKs
+     */
+    private static void assumeGroovyCompilesOnThisJvm() throws IOException {
+        try (GroovyClassLoader classLoader = new GroovyClassLoader()) {
+            classLoader.parseClass("class JvmProbe { java.time.Instant date }");
+        } catch (GroovyBugError e) {
+            Assume.assumeNoException("Groovy cannot compile on Java " + Runtime.version(), e);
+        }
+    }
+
+    private static void uploadSupplier(int year) throws Exception {
+        String script = String.format("package com.omb.ocpp.groovy.supplier%n" +
+                "%n" +
+                "import com.omb.ocpp.groovy.ConfirmationSupplier%n" +
+                "import eu.chargetime.ocpp.model.core.HeartbeatConfirmation%n" +
+                "import eu.chargetime.ocpp.model.core.HeartbeatRequest%n" +
+                "%n" +
+                "import java.time.Instant%n" +
+                "import java.time.ZoneOffset%n" +
+                "import java.time.ZonedDateTime%n" +
+                "%n" +
+                "class HeartbeatTestSupplier implements ConfirmationSupplier<HeartbeatRequest, HeartbeatConfirmation> {%n" +
+                "    private static final Instant LOAD_DATE = Instant.now()%n" +
+                "%n" +
+                "    HeartbeatConfirmation getConfirmation(UUID sessionUuid, HeartbeatRequest request) {%n" +
+                "        new HeartbeatConfirmation(ZonedDateTime.of(%d, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC))%n" +
+                "    }%n" +
+                "%n" +
+                "    Instant getClassLoadDate() {%n" +
+                "        LOAD_DATE%n" +
+                "    }%n" +
+                "}%n", year);
+        groovyService.uploadGroovyScript(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)),
+                SUPPLIER_SCRIPT);
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,122 @@
+package com.omb.ocpp.security;
+
+import org.java_websocket.SSLSocketChannel2;
+import org.java_websocket.WebSocketServerFactory;
+import org.java_websocket.server.DefaultSSLWebSocketServerFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Accept rate of the server socket factories: loopback connection is accepted and wrapped to an SSL channel the way
+ * websocket server does it, TLS handshake itself is not part of the measurement. Baseline computes cipher suites on
+ * every accept, as the factories did before suites were cached per SSL context.
+ */
+public class SSLWebSocketServerFactoryAcceptBenchmarkTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SSLWebSocketServerFactoryAcceptBenchmarkTest.class);
+    private static final int WARMUP_ACCEPTS = 500;
+    private static final int MEASURED_ACCEPTS = 2000;
+
+    private static SSLContext sslContext;
+    private static ServerSocketChannel serverChannel;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        sslContext = SSLContext.getInstance("TLSv1.2");
+        sslContext.init(null, null, null);
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        serverChannel.close();
+    }
+
+    @Test
+    public void perAcceptCipherSuitesBaseline() throws Exception {
+        List<String> ciphers = Arrays.asList(sslContext.createSSLEngine().getEnabledCipherSuites());
+        benchmark("baseline", new PerAcceptCipherSuitesFactory(sslContext, ciphers));
+    }
+
+    @Test
+    public void defaultFactoryWrapper() throws Exception {
+        benchmark("default wrapper", new DefaultSSLWebSocketServerFactoryWrapper(false, sslContext,
+                new TlsSessionMetrics()));
+    }
+
+    @Test
+    public void customFactoryWrapper() throws Exception {
+        List<String> ciphers = Arrays.asList(sslContext.createSSLEngine().getEnabledCipherSuites());
+        benchmark("custom wrapper", new CustomSSLWebSocketServerFactoryWrapper(false, ciphers, sslContext,
+                new TlsSessionMetrics()));
+    }
+
+    private static void benchmark(String name, WebSocketServerFactory factory) throws Exception {
+        try {
+            acceptAndWrap(factory, WARMUP_ACCEPTS);
+            long started = System.nanoTime();
+            int wrapped = acceptAndWrap(factory, MEASURED_ACCEPTS);
+            long elapsedNanos = System.nanoTime() - started;
+            assertEquals(MEASURED_ACCEPTS, wrapped);
+            assertTrue(elapsedNanos > 0);
+            LOGGER.info("{}: {} accepts/s, {} us per accept", name,
+                    MEASURED_ACCEPTS * 1_000_000_000L / elapsedNanos, elapsedNanos / 1000 / MEASURED_ACCEPTS);
+        } finally {
+            factory.close();
+        }
+    }
+
+    private static int acceptAndWrap(WebSocketServerFactory factory, int accepts) throws IOException {
+        int wrapped = 0;
+        for (int i = 0; i < accepts; i++) {
+            try (SocketChannel client = SocketChannel.open(serverChannel.getLocalAddress());
+                 SocketChannel accepted = serverChannel.accept()) {
+                accepted.configureBlocking(false);
+                ByteChannel channel = factory.wrapChannel(accepted, null);
+                if (channel instanceof SSLSocketChannel2) {
+                    wrapped++;
+                }
+            }
+        }
+        return wrapped;
+    }
+
+    private static class PerAcceptCipherSuitesFactory extends DefaultSSLWebSocketServerFactory {
+        private final List<String> ciphers;
+
+        PerAcceptCipherSuitesFactory(SSLContext sslContext, List<String> ciphers) {
+            super(sslContext);
+            this.ciphers = ciphers;
+        }
+
+        @Override
+        public ByteChannel wrapChannel(SocketChannel channel, SelectionKey key) throws IOException {
+            SSLEngine sslEngine = sslcontext.createSSLEngine();
+            List<String> enabledCiphers = new ArrayList<>(Arrays.asList(sslEngine.getEnabledCipherSuites()));
+            enabledCiphers.retainAll(ciphers);
+            SSLEngine e = sslcontext.createSSLEngine();
+            e.setEnabledCipherSuites(enabledCiphers.toArray(new String[0]));
+            e.setUseClientMode(false);
+            return new SSLSocketChannel2(channel, e, exec, key);
+        }
+    }
+}